@@ -27,6 +27,7 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -41,6 +42,7 @@ import org.xml.sax.SAXException;
 import com.maxprograms.languages.Language;
 import com.maxprograms.languages.LanguageUtils;
 import com.maxprograms.tmxserver.models.TUnit;
+import com.maxprograms.tmxserver.tmx.EditorStore;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
@@ -48,6 +50,11 @@ import com.sun.net.httpserver.HttpServer;
 public class TMXServer implements HttpHandler {
 
 	private static Logger logger = System.getLogger(TMXServer.class.getName());
+	private static final Set<String> LOADING_LOCKED = Set.of("openFile", "saveFile", "saveFileAttributes",
+			"saveFileProperties", "saveFileNotes", "saveTuvData", "consolidateUnits", "removeUntranslated",
+			"removeSameAsSource", "replaceText", "removeSpaces", "removeDuplicates", "changeLanguage", "insertUnit",
+			"deleteUnits", "createFile", "removeTags", "removeLanguage", "addLanguage", "setSrcLanguage",
+			"exportDelimited", "exportExcel", "setAttributes", "setProperties", "setNotes", "processTasks");
 	private HttpServer server;
 	private TMXService service;
 
@@ -104,6 +111,10 @@ public class TMXServer implements HttpHandler {
 			JSONObject json = new JSONObject(request);
 			String command = json.getString("command");
 			try {
+				if (service.isParsing() && LOADING_LOCKED.contains(command)) {
+					// units can be read and the file closed while it is loading, but not changed
+					command = "loadingLocked";
+				}
 				switch (command) {
 					case "version":
 						JSONObject obj = new JSONObject();
@@ -147,6 +158,12 @@ public class TMXServer implements HttpHandler {
 					case "loadingProgress":
 						response = getLoadingProgress();
 						break;
+					case "loadingLocked":
+						JSONObject locked = new JSONObject();
+						locked.put(Constants.STATUS, Constants.ERROR);
+						locked.put(Constants.REASON, Messages.getString("TMXServer.4"));
+						response = locked.toString();
+						break;
 					case "getLanguages":
 						response = getLanguages();
 						break;
@@ -196,7 +213,7 @@ public class TMXServer implements HttpHandler {
 						response = removeSpaces();
 						break;
 					case "removeDuplicates":
-						response = removeDuplicates();
+						response = removeDuplicates(json);
 						break;
 					case "getAllLanguages":
 						response = getAllLanguages();
@@ -282,6 +299,9 @@ public class TMXServer implements HttpHandler {
 					case "systemInfo":
 						response = getSystemInformation();
 						break;
+					case "diagnostics":
+						response = getDiagnostics();
+						break;
 					default:
 						JSONObject unknown = new JSONObject();
 						unknown.put(Constants.STATUS, Constants.ERROR);
@@ -501,6 +521,9 @@ public class TMXServer implements HttpHandler {
 	}
 
 	private String deleteUnits(JSONObject json) {
+		if (json.has("filter")) {
+			return deleteFiltered(json.getJSONObject("filter"));
+		}
 		JSONArray array = json.getJSONArray("selected");
 		List<String> selected = new ArrayList<>();
 		for (int i = 0; i < array.length(); i++) {
@@ -509,6 +532,45 @@ public class TMXServer implements HttpHandler {
 		return service.delete(selected).toString();
 	}
 
+	private String deleteFiltered(JSONObject filter) {
+		try {
+			String filterText = null;
+			if (filter.has("filterText")) {
+				filterText = filter.getString("filterText");
+			}
+			Language filterLanguage = null;
+			if (filter.has("filterLanguage")) {
+				filterLanguage = LanguageUtils.getLanguage(filter.getString("filterLanguage"));
+			}
+			boolean filterUntranslated = false;
+			if (filter.has("filterUntranslated")) {
+				filterUntranslated = filter.getBoolean("filterUntranslated");
+			}
+			boolean regExp = false;
+			if (filter.has("regExp")) {
+				regExp = filter.getBoolean("regExp");
+			}
+			Language filterSrcLanguage = null;
+			if (filter.has("filterSrcLanguage")) {
+				filterSrcLanguage = LanguageUtils.getLanguage(filter.getString("filterSrcLanguage"));
+			}
+			boolean caseSensitiveFilter = false;
+			if (filter.has("caseSensitiveFilter")) {
+				caseSensitiveFilter = filter.getBoolean("caseSensitiveFilter");
+			}
+			// rejected here, before the background job starts
+			EditorStore.checkDeleteFilter(filterText, filterLanguage, filterUntranslated, filterSrcLanguage);
+			return service.deleteFiltered(filterText, filterLanguage, caseSensitiveFilter, filterUntranslated, regExp,
+					filterSrcLanguage).toString();
+		} catch (IOException | JSONException | SAXException | ParserConfigurationException e) {
+			logger.log(Level.ERROR, e);
+			JSONObject result = new JSONObject();
+			result.put(Constants.STATUS, Constants.ERROR);
+			result.put(Constants.REASON, e.getMessage());
+			return result.toString();
+		}
+	}
+
 	private String changeLanguage(JSONObject json) {
 		try {
 			Language oldLang = LanguageUtils.getLanguage(json.getString("oldLanguage"));
@@ -535,8 +597,12 @@ public class TMXServer implements HttpHandler {
 		return service.cleaningProgress().toString();
 	}
 
-	private String removeDuplicates() {
-		return service.removeDuplicates().toString();
+	private String removeDuplicates(JSONObject json) {
+		boolean keepNewest = false;
+		if (json.has("keepNewest")) {
+			keepNewest = json.getBoolean("keepNewest");
+		}
+		return service.removeDuplicates(keepNewest).toString();
 	}
 
 	private String removeSpaces() {
@@ -682,6 +748,10 @@ public class TMXServer implements HttpHandler {
 
 			if (segments.getString(Constants.STATUS).equals(Constants.SUCCESS)) {
 				JSONArray units = segments.getJSONArray("units");
+				if (segments.has("loading")) {
+					result.put("loading", true);
+					result.put("count", segments.getLong("count"));
+				}
 
 				List<Language> fileLanguages = new ArrayList<>();
 				JSONArray langs = service.getLanguages().getJSONArray("languages");
@@ -725,6 +795,10 @@ public class TMXServer implements HttpHandler {
 		return service.openFile(file).toString();
 	}
 
+	private String getDiagnostics() {
+		return service.getDiagnostics().toString();
+	}
+
 	private String getLoadingProgress() throws JSONException, SQLException {
 		return service.getLoadingProgress().toString();
 	}
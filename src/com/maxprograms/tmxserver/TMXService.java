@@ -19,6 +19,7 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -47,8 +48,11 @@ import com.maxprograms.languages.LanguageUtils;
 import com.maxprograms.tmxserver.excel.ExcelReader;
 import com.maxprograms.tmxserver.excel.Sheet;
 import com.maxprograms.tmxserver.models.TUnit;
+import com.maxprograms.tmxserver.tmx.ChunkedTMXReader;
 import com.maxprograms.tmxserver.tmx.CountStore;
-import com.maxprograms.tmxserver.tmx.LanguageHandler;
+import com.maxprograms.tmxserver.tmx.EditorStore;
+import com.maxprograms.tmxserver.tmx.LogStore;
+import com.maxprograms.tmxserver.tmx.MemoryStore;
 import com.maxprograms.tmxserver.tmx.MergeStore;
 import com.maxprograms.tmxserver.tmx.SplitStore;
 import com.maxprograms.tmxserver.tmx.SqlStore;
@@ -56,16 +60,14 @@ import com.maxprograms.tmxserver.tmx.StoreInterface;
 import com.maxprograms.tmxserver.tmx.TMXCleaner;
 import com.maxprograms.tmxserver.tmx.TMXConverter;
 import com.maxprograms.tmxserver.tmx.TMXReader;
-import com.maxprograms.tmxserver.tmx.TMXResolver;
+import com.maxprograms.tmxserver.tmx.TmxStreams;
 import com.maxprograms.tmxserver.tmx.TmxUtils;
 import com.maxprograms.tmxserver.utils.TextUtils;
 import com.maxprograms.tmxvalidation.TMXValidator;
 import com.maxprograms.xml.Attribute;
-import com.maxprograms.xml.CustomErrorHandler;
 import com.maxprograms.xml.Document;
 import com.maxprograms.xml.Element;
 import com.maxprograms.xml.Indenter;
-import com.maxprograms.xml.SAXBuilder;
 import com.maxprograms.xml.XMLOutputter;
 
 public class TMXService {
@@ -75,8 +77,9 @@ public class TMXService {
 	protected StoreInterface store;
 	protected File currentFile;
 
-	protected boolean parsing;
+	protected volatile boolean parsing;
 	protected String parsingError;
+	private volatile Thread loader;
 
 	protected boolean processing;
 	protected String processingError;
@@ -107,6 +110,10 @@ public class TMXService {
 		return store != null;
 	}
 
+	public boolean isParsing() {
+		return parsing;
+	}
+
 	protected static File getPreferencesFolder() {
 		String os = System.getProperty("os.name").toLowerCase();
 		if (os.startsWith("mac")) {
@@ -146,22 +153,53 @@ public class TMXService {
 				store = null;
 			}
 			currentFile = new File(fileName);
-			Set<String> languages = getLanguages(fileName);
-			if (languages.isEmpty()) {
-				result.put(Constants.STATUS, Constants.ERROR);
-				result.put(Constants.REASON, Messages.getString("TMXService.15"));
-				return result;
+			long limit = getPreferences().getLong("memoryStoreLimit") * 1024 * 1024;
+			if (MemoryStore.accepts(currentFile, limit)) {
+				store = new MemoryStore(currentFile);
+			} else if (getPreferences().getBoolean("logStore")) {
+				store = new LogStore(currentFile);
+			} else {
+				store = new SqlStore(currentFile);
 			}
-			store = new SqlStore(languages);
 			parsingError = "";
-			Thread.ofVirtual().start(() -> {
+			if (((EditorStore) store).isRestored()) {
+				logger.log(Level.INFO, "Restored " + currentFile.getName() + " "
+						+ ((EditorStore) store).getLoadProgress().toJSON().toString());
+				if (store.getLanguages().isEmpty()) {
+					parsingError = Messages.getString("TMXService.15");
+					store.close();
+					store = null;
+				}
+				parsing = false;
+				result.put(Constants.STATUS, Constants.SUCCESS);
+				return result;
+			}
+			loader = Thread.ofVirtual().start(() -> {
 				try {
-					TMXReader reader = new TMXReader(store);
-					reader.parse(currentFile);
-					store.commit();
+					JSONObject preferences = getPreferences();
+					int threads = preferences.getInt("loadThreads");
+					if (preferences.getBoolean("chunkedLoad")) {
+						ChunkedTMXReader reader = new ChunkedTMXReader((EditorStore) store, threads);
+						reader.parse(currentFile);
+					} else {
+						TMXReader reader = new TMXReader((EditorStore) store, threads);
+						reader.parse(currentFile);
+					}
+					((EditorStore) store).loadCompleted();
+					logger.log(Level.INFO, "Loaded " + currentFile.getName() + " "
+							+ ((EditorStore) store).getLoadProgress().toJSON().toString());
+					if (store.getLanguages().isEmpty()) {
+						parsingError = Messages.getString("TMXService.15");
+						store.close();
+						store = null;
+					}
 				} catch (Exception e) {
-					logger.log(Level.SEVERE, e.getMessage(), e);
-					parsingError = e.getMessage();
+					if (((EditorStore) store).getLoadProgress().isCancelled()) {
+						parsingError = "";
+					} else {
+						logger.log(Level.SEVERE, e.getMessage(), e);
+						parsingError = e.getMessage();
+					}
 					try {
 						store.close();
 					} catch (Exception e1) {
@@ -182,21 +220,9 @@ public class TMXService {
 		return result;
 	}
 
-	private Set<String> getLanguages(String fileName) throws SAXException, IOException, ParserConfigurationException {
-		SAXBuilder builder = new SAXBuilder();
-		builder.setEntityResolver(new TMXResolver());
-		LanguageHandler handler = new LanguageHandler();
-		builder.setContentHandler(handler);
-		builder.setErrorHandler(new CustomErrorHandler());
-		builder.build(fileName);
-		return handler.getLanguages();
-	}
-
 	public JSONObject getData(int start, int count, String filterText, Language filterLanguage,
 			boolean caseSensitiveFilter, boolean filterUntranslated, boolean regExp, Language filterSrcLanguage,
 			Language sortLanguage, boolean ascending) {
-		processing = true;
-		processingError = "";
 		JSONObject result = new JSONObject();
 		try {
 			List<TUnit> data = store.getUnits(start, count, filterText, filterLanguage, caseSensitiveFilter,
@@ -207,31 +233,31 @@ public class TMXService {
 				array.put(it.next().toJSON());
 			}
 			result.put("units", array);
+			if (parsing) {
+				// pages are served from the units stored so far
+				result.put("loading", true);
+				result.put("count", ((EditorStore) store).getStored());
+			}
 			result.put(Constants.STATUS, Constants.SUCCESS);
 		} catch (Exception e) {
 			logger.log(Level.SEVERE, e.getMessage(), e);
-			processingError = e.getMessage();
 			result.put(Constants.STATUS, Constants.ERROR);
 			result.put(Constants.REASON, e.getMessage());
 		}
-		processing = false;
 		return result;
 	}
 
 	public JSONObject getLanguages() throws JSONException, IOException, SAXException, ParserConfigurationException {
 		JSONObject result = new JSONObject();
-		if (parsing) {
-			result.put(Constants.STATUS, Constants.ERROR);
-			result.put(Constants.REASON, Messages.getString("TMXService.0"));
-			return result;
-		}
 		if (store == null) {
 			result.put(Constants.STATUS, Constants.ERROR);
 			result.put(Constants.REASON, Constants.NULLSTORE);
 			return result;
 		}
+		// while loading, only the languages found so far are returned
+		result.put("loading", parsing);
 		Set<String> codes = store.getLanguages();
-		if (codes == null || codes.isEmpty()) {
+		if (codes.isEmpty() && !parsing) {
 			result.put(Constants.STATUS, Constants.ERROR);
 			result.put(Constants.REASON, Messages.getString("TMXService.11"));
 			return result;
@@ -282,6 +308,9 @@ public class TMXService {
 				}
 			}
 			result.put("count", store.getProcessed());
+			if (store instanceof EditorStore editorStore) {
+				result.put("progress", editorStore.getProcessProgress().toJSON());
+			}
 		} else {
 			result.put(Constants.STATUS, Constants.ERROR);
 			result.put(Constants.REASON, Constants.NULLSTORE);
@@ -301,7 +330,41 @@ public class TMXService {
 		return result;
 	}
 
-	public JSONObject closeFile() {
+	public JSONObject getDiagnostics() {
+		JSONObject result = new JSONObject();
+		if (store instanceof SqlStore sqlStore) {
+			result.put("cache", sqlStore.getCacheStatistics());
+			result.put(Constants.STATUS, Constants.SUCCESS);
+		} else if (store instanceof MemoryStore memoryStore) {
+			result.put("arena", memoryStore.getArenaStatistics());
+			result.put(Constants.STATUS, Constants.SUCCESS);
+		} else if (store instanceof LogStore logStore) {
+			result.put("log", logStore.getLogStatistics());
+			result.put(Constants.STATUS, Constants.SUCCESS);
+		} else {
+			result.put(Constants.STATUS, Constants.ERROR);
+			result.put(Constants.REASON, Constants.NULLSTORE);
+		}
+		return result;
+	}
+
+	public synchronized JSONObject closeFile() {
+		StoreInterface current = store;
+		if (parsing && loader != null && current instanceof EditorStore editorStore) {
+			// stops the reader; the loading thread closes the store when it gives up
+			editorStore.getLoadProgress().cancel();
+			try {
+				loader.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (store == null) {
+				currentFile = null;
+				JSONObject result = new JSONObject();
+				result.put(Constants.STATUS, Constants.SUCCESS);
+				return result;
+			}
+		}
 		if (store != null) {
 			try {
 				store.close();
@@ -335,7 +398,7 @@ public class TMXService {
 		JSONObject result = new JSONObject();
 		try {
 			value = TmxUtils.replaceTags(value);
-			String updated = store.saveData(id, lang, value);
+			String updated = store.saveData(Long.parseLong(id), lang, value);
 			result.put(Constants.STATUS, Constants.SUCCESS);
 			result.put("data", updated);
 			result.put("id", id);
@@ -358,6 +421,7 @@ public class TMXService {
 					JSONObject json = getPreferences();
 					store.setIndentation(json.getInt("indentation"));
 					store.writeFile(currentFile);
+					((EditorStore) store).fileSaved(currentFile);
 				} catch (Exception ex) {
 					logger.log(Level.SEVERE, ex.getMessage(), ex);
 					savingError = ex.getMessage();
@@ -435,7 +499,7 @@ public class TMXService {
 			return result;
 		}
 		try {
-			Element tu = store.getTu(id);
+			Element tu = store.getTu(Long.parseLong(id));
 			if (tu != null) {
 				List<String[]> atts = new ArrayList<>();
 				List<Attribute> aList = tu.getAttributes();
@@ -493,9 +557,51 @@ public class TMXService {
 	public JSONObject delete(List<String> selected) {
 		JSONObject result = new JSONObject();
 		try {
-			store.delete(selected);
+			List<Long> ids = new ArrayList<>();
+			Iterator<String> it = selected.iterator();
+			while (it.hasNext()) {
+				ids.add(Long.parseLong(it.next()));
+			}
+			processing = true;
+			processingError = "";
+			Thread.ofVirtual().start(() -> {
+				try {
+					store.delete(ids);
+				} catch (Exception e) {
+					logger.log(Level.SEVERE, e.getMessage(), e);
+					processingError = e.getMessage();
+				}
+				processing = false;
+			});
+			result.put(Constants.STATUS, Constants.SUCCESS);
+		} catch (Exception ex) {
+			processing = false;
+			logger.log(Level.SEVERE, ex.getMessage(), ex);
+			result.put(Constants.STATUS, Constants.ERROR);
+			result.put(Constants.REASON, ex.getMessage());
+		}
+		return result;
+	}
+
+	public JSONObject deleteFiltered(String filterText, Language filterLanguage, boolean caseSensitive,
+			boolean filterUntranslated, boolean regExp, Language filterSrcLanguage) {
+		JSONObject result = new JSONObject();
+		processing = true;
+		processingError = "";
+		try {
+			Thread.ofVirtual().start(() -> {
+				try {
+					((EditorStore) store).deleteFiltered(filterText, filterLanguage, caseSensitive,
+							filterUntranslated, regExp, filterSrcLanguage);
+				} catch (Exception e) {
+					logger.log(Level.SEVERE, e.getMessage(), e);
+					processingError = e.getMessage();
+				}
+				processing = false;
+			});
 			result.put(Constants.STATUS, Constants.SUCCESS);
 		} catch (Exception ex) {
+			processing = false;
 			logger.log(Level.SEVERE, ex.getMessage(), ex);
 			result.put(Constants.STATUS, Constants.ERROR);
 			result.put(Constants.REASON, ex.getMessage());
@@ -530,10 +636,9 @@ public class TMXService {
 	public JSONObject insertUnit() {
 		JSONObject result = new JSONObject();
 		try {
-			String id = "tmx" + System.currentTimeMillis();
-			store.insertUnit(id);
+			long id = store.insertUnit("tmx" + System.currentTimeMillis());
 			result.put(Constants.STATUS, Constants.SUCCESS);
-			result.put("id", id);
+			result.put("id", Long.toString(id));
 		} catch (Exception e) {
 			logger.log(Level.SEVERE, e.getMessage(), e);
 			result.put(Constants.STATUS, Constants.ERROR);
@@ -746,14 +851,14 @@ public class TMXService {
 		return result;
 	}
 
-	public JSONObject removeDuplicates() {
+	public JSONObject removeDuplicates(boolean keepNewest) {
 		JSONObject result = new JSONObject();
 		processing = true;
 		processingError = "";
 		try {
 			Thread.ofVirtual().start(() -> {
 				try {
-					store.removeDuplicates();
+					((EditorStore) store).removeDuplicates(keepNewest);
 				} catch (Exception e) {
 					logger.log(Level.SEVERE, e.getMessage(), e);
 					processingError = e.getMessage();
@@ -820,9 +925,9 @@ public class TMXService {
 		JSONObject result = new JSONObject();
 		try {
 			if (lang.isEmpty()) {
-				store.setTuAttributes(id, attributes);
+				store.setTuAttributes(Long.parseLong(id), attributes);
 			} else {
-				store.setTuvAttributes(id, lang, attributes);
+				store.setTuvAttributes(Long.parseLong(id), lang, attributes);
 			}
 			result.put(Constants.STATUS, Constants.SUCCESS);
 		} catch (Exception ex) {
@@ -837,7 +942,8 @@ public class TMXService {
 		JSONObject result = new JSONObject();
 		if (parsing) {
 			result.put(Constants.STATUS, Constants.LOADING);
-			result.put(Constants.LOADED, store.getCount());
+			result.put(Constants.LOADED, ((EditorStore) store).getStored());
+			result.put("progress", ((EditorStore) store).getLoadProgress().toJSON());
 		} else {
 			if (!parsingError.isEmpty()) {
 				result.put(Constants.STATUS, Constants.ERROR);
@@ -846,6 +952,7 @@ public class TMXService {
 				if (store != null) {
 					result.put(Constants.STATUS, Constants.COMPLETED);
 					result.put("count", store.getCount());
+					result.put("progress", ((EditorStore) store).getLoadProgress().toJSON());
 				} else {
 					result.put(Constants.STATUS, Constants.ERROR);
 					result.put(Constants.REASON, Constants.NULLSTORE);
@@ -864,6 +971,7 @@ public class TMXService {
 				result.put(Constants.STATUS, Constants.COMPLETED);
 			}
 			result.put("count", store.getSaved());
+			result.put("progress", ((EditorStore) store).getSaveProgress().toJSON());
 			if (!savingError.isEmpty()) {
 				result.put(Constants.STATUS, Constants.ERROR);
 				result.put(Constants.REASON, savingError);
@@ -946,7 +1054,7 @@ public class TMXService {
 			try {
 				JSONObject json = getPreferences();
 				int indentation = json.getInt("indentation");
-				try (FileOutputStream out = new FileOutputStream(new File(merged))) {
+				try (OutputStream out = TmxStreams.create(new File(merged))) {
 					Element header = new Element("header");
 					header.setAttribute("creationdate", TmxUtils.tmxDate());
 					header.setAttribute("creationtool", Constants.APPNAME);
@@ -1010,9 +1118,9 @@ public class TMXService {
 		JSONObject result = new JSONObject();
 		try {
 			if (lang.isEmpty()) {
-				store.setTuProperties(id, dataList);
+				store.setTuProperties(Long.parseLong(id), dataList);
 			} else {
-				store.setTuvProperties(id, lang, dataList);
+				store.setTuvProperties(Long.parseLong(id), lang, dataList);
 			}
 			result.put(Constants.STATUS, Constants.SUCCESS);
 		} catch (Exception ex) {
@@ -1027,9 +1135,9 @@ public class TMXService {
 		JSONObject result = new JSONObject();
 		try {
 			if (lang.isEmpty()) {
-				store.setTuNotes(id, notes);
+				store.setTuNotes(Long.parseLong(id), notes);
 			} else {
-				store.setTuvNotes(id, lang, notes);
+				store.setTuvNotes(Long.parseLong(id), lang, notes);
 			}
 			result.put(Constants.STATUS, Constants.SUCCESS);
 		} catch (Exception ex) {
@@ -1177,6 +1285,8 @@ public class TMXService {
 					result.put(Constants.REASON, exportingError);
 				}
 			}
+			result.put("count", store.getExported());
+			result.put("progress", ((EditorStore) store).getExportProgress().toJSON());
 		} else {
 			result.put(Constants.STATUS, Constants.ERROR);
 			result.put(Constants.REASON, Constants.NULLSTORE);
@@ -1187,7 +1297,7 @@ public class TMXService {
 	public JSONObject getTuvData(String id, String lang) {
 		JSONObject result = new JSONObject();
 		try {
-			Element tuv = store.getTuv(id, lang);
+			Element tuv = store.getTuv(Long.parseLong(id), lang);
 			if (tuv != null) {
 				List<String[]> atts = new ArrayList<>();
 				List<Attribute> aList = tuv.getAttributes();
@@ -1250,7 +1360,20 @@ public class TMXService {
 		Thread.ofVirtual().start(() -> {
 			try {
 				TMXValidator validator = new TMXValidator();
-				validator.validate(new File(file));
+				File tmx = new File(file);
+				if (TmxStreams.isCompressed(tmx)) {
+					// the validator only reads plain files
+					File tmp = new File(getPreferencesFolder(), "tmp");
+					Files.createDirectories(tmp.toPath());
+					File expanded = TmxStreams.expand(tmx, tmp);
+					try {
+						validator.validate(expanded);
+					} finally {
+						Files.deleteIfExists(expanded.toPath());
+					}
+				} else {
+					validator.validate(tmx);
+				}
 			} catch (IOException | SAXException | ParserConfigurationException e) {
 				logger.log(Level.SEVERE, e.getMessage(), e);
 				validatingError = e.getMessage();
@@ -1632,18 +1755,19 @@ public class TMXService {
 		try {
 			Thread.ofVirtual().start(() -> {
 				try {
-					if (json.getBoolean("tags")) {
-						store.removeTags();
-					}
-					if (json.getBoolean("spaces")) {
-						store.removeSpaces();
+					// tags and spaces are cleaned in one pass; the steps that follow are
+					// set-based in the database store
+					boolean tags = json.getBoolean("tags");
+					boolean spaces = json.getBoolean("spaces");
+					if (tags || spaces) {
+						((EditorStore) store).cleanUnits(tags, spaces);
 					}
 					if (json.getBoolean("untranslated")) {
 						store.removeUntranslated(new Language(json.getString("sourceLanguage"),
 								LanguageUtils.getLanguage(json.getString("sourceLanguage")).getDescription()));
 					}
 					if (json.getBoolean("duplicates")) {
-						store.removeDuplicates();
+						((EditorStore) store).removeDuplicates(json.has("keepNewest") && json.getBoolean("keepNewest"));
 					}
 					if (json.getBoolean("consolidate")) {
 						store.consolidateUnits(new Language(json.getString("sourceLanguage"),
@@ -1738,6 +1862,7 @@ public class TMXService {
 			prefs.put("appLang", "en");
 			prefs.put("indentation", 2);
 			prefs.put("changeId", false);
+			prefs.put("batchSize", 1000);
 			try (FileOutputStream output = new FileOutputStream(preferences)) {
 				output.write(prefs.toString().getBytes(StandardCharsets.UTF_8));
 			}
@@ -1758,6 +1883,63 @@ public class TMXService {
 		if (!result.has("changeId")) {
 			result.put("changeId", false);
 		}
+		if (!result.has("batchSize")) {
+			result.put("batchSize", 1000);
+		}
+		if (!result.has("loadThreads")) {
+			result.put("loadThreads", Math.clamp(Runtime.getRuntime().availableProcessors() - 2l, 1, 4));
+		}
+		if (!result.has("chunkedLoad")) {
+			result.put("chunkedLoad", false);
+		}
+		if (!result.has("sessionBudget")) {
+			// megabytes kept for reopening recent files without parsing them again
+			result.put("sessionBudget", 4096);
+		}
+		if (!result.has("memoryStoreLimit")) {
+			// megabytes; smaller files are kept in memory instead of a database
+			result.put("memoryStoreLimit", 256);
+		}
+		if (!result.has("logStore")) {
+			// larger files go to a memory-mapped log instead of a database
+			result.put("logStore", false);
+		}
+		if (!result.has("readConnections")) {
+			// connections that page and export while changes are written
+			result.put("readConnections", 2);
+		}
+		if (!result.has("elementCache")) {
+			// parsed units and variants kept in memory while editing
+			result.put("elementCache", 2048);
+		}
+		if (!result.has("regExpCaseInsensitive")) {
+			result.put("regExpCaseInsensitive", false);
+		}
+		if (!result.has("regExpUnicode")) {
+			result.put("regExpUnicode", false);
+		}
+		if (!result.has("regExpTimeout")) {
+			// milliseconds allowed for matching a regular expression against one segment
+			result.put("regExpTimeout", 2000);
+		}
+		if (!result.has("loadProfile")) {
+			// durability is not needed while the source file is being loaded
+			JSONObject profile = new JSONObject();
+			profile.put("journal_mode", "OFF");
+			profile.put("synchronous", "OFF");
+			profile.put("page_size", 8192);
+			profile.put("cache_size", -262144);
+			profile.put("temp_store", "MEMORY");
+			result.put("loadProfile", profile);
+		}
+		if (!result.has("editProfile")) {
+			JSONObject profile = new JSONObject();
+			profile.put("journal_mode", "WAL");
+			profile.put("synchronous", "NORMAL");
+			profile.put("cache_size", -65536);
+			profile.put("temp_store", "MEMORY");
+			result.put("editProfile", profile);
+		}
 		return result;
 	}
 
@@ -1775,21 +1957,21 @@ public class TMXService {
 	}
 
     public JSONObject saveFileAttributes(JSONObject attributes) {
-        ((SqlStore)store).setFileAttributes(attributes);
+        ((EditorStore) store).setFileAttributes(attributes);
 		JSONObject result = new JSONObject();
 		result.put(Constants.STATUS, Constants.SUCCESS);
 		return result;
     }
 
 	public JSONObject saveFileProperties(JSONArray properties) {
-		((SqlStore)store).setFileProperties(properties);
+		((EditorStore) store).setFileProperties(properties);
 		JSONObject result = new JSONObject();
 		result.put(Constants.STATUS, Constants.SUCCESS);
 		return result;
 	}
 
 	public Object saveFileNotes(JSONArray notes) {
-		((SqlStore)store).setFileNotes(notes);
+		((EditorStore) store).setFileNotes(notes);
 		JSONObject result = new JSONObject();
 		result.put(Constants.STATUS, Constants.SUCCESS);
 		return result;
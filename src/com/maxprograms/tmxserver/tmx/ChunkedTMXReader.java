@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+public class ChunkedTMXReader {
+
+	// The file is memory mapped and scanned once for <tu> start tags inside <body>.
+	// Each chunk of units is wrapped with the original prolog (XML declaration,
+	// DOCTYPE, <tmx>, <header> and <body> start tag) and epilog so it parses as a
+	// complete document on its own. Units are stored with position
+	// (chunk << 40) + index, which keeps document order regardless of the order
+	// in which chunks finish.
+
+	private static final long WINDOW = 1l << 30;
+	private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+	private static final int POSITION_BITS = 40;
+
+	private static final byte[] BODY = "<body".getBytes();
+	private static final byte[] BODY_END = "</body".getBytes();
+	private static final byte[] TU = "<tu".getBytes();
+	private static final byte[] COMMENT = "<!--".getBytes();
+	private static final byte[] COMMENT_END = "-->".getBytes();
+	private static final byte[] CDATA = "<![CDATA[".getBytes();
+	private static final byte[] CDATA_END = "]]>".getBytes();
+	private static final byte[] PI = "<?".getBytes();
+	private static final byte[] PI_END = "?>".getBytes();
+
+	private EditorStore store;
+	private int threads;
+	private MappedByteBuffer[] windows;
+	private long size;
+
+	public ChunkedTMXReader(EditorStore store, int threads) {
+		this.store = store;
+		this.threads = Math.max(threads, 1);
+	}
+
+	public void parse(File file) throws SAXException, IOException, ParserConfigurationException, SQLException {
+		TmxUtils.resetTags();
+		if (TmxStreams.isCompressed(file)) {
+			// compressed files can't be split without reading them sequentially
+			new TMXReader(store, threads).parse(file);
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			size = channel.size();
+			int count = (int) ((size + WINDOW - 1) / WINDOW);
+			windows = new MappedByteBuffer[count];
+			for (int i = 0; i < count; i++) {
+				long start = i * WINDOW;
+				windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, size - start));
+			}
+			List<Long> boundaries = new ArrayList<>();
+			if (!isSingleByte() || !scan(boundaries) || boundaries.size() < 3) {
+				// UTF-16 files, unexpected layouts and small files are read sequentially
+				windows = null;
+				new TMXReader(store, threads).parse(file);
+				return;
+			}
+			byte[] prolog = read(0, boundaries.get(0));
+			long epilogStart = boundaries.get(boundaries.size() - 1);
+			byte[] epilog = read(epilogStart, size);
+			try {
+				// stores the header and checks that the prolog can be parsed detached from
+				// the file
+				parseChunk(prolog, new byte[0], epilog, null, 0);
+			} catch (SAXException | IOException e) {
+				windows = null;
+				new TMXReader(store, threads).parse(file);
+				return;
+			}
+			store.getLoadProgress().addBytes(prolog.length + epilog.length);
+			parseChunks(prolog, epilog, boundaries);
+		} finally {
+			windows = null;
+		}
+		store.commit();
+	}
+
+	private void parseChunks(byte[] prolog, byte[] epilog, List<Long> boundaries)
+			throws SAXException, IOException, ParserConfigurationException, SQLException {
+		LoadPipeline pipeline = new LoadPipeline(store, 0);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Void>> results = new ArrayList<>();
+		// boundaries holds the start of the units, the chunk breaks and </body>
+		for (int i = 1; i < boundaries.size(); i++) {
+			long start = boundaries.get(i - 1);
+			long end = boundaries.get(i);
+			long base = (long) (i - 1) << POSITION_BITS;
+			results.add(pool.submit(() -> {
+				parseChunk(prolog, read(start, end), epilog, pipeline, base);
+				store.getLoadProgress().addBytes(end - start);
+				return null;
+			}));
+		}
+		try {
+			for (int i = 0; i < results.size(); i++) {
+				results.get(i).get();
+			}
+		} catch (ExecutionException e) {
+			pool.shutdownNow();
+			awaitTermination(pool);
+			pipeline.abort();
+			Throwable cause = e.getCause();
+			if (cause instanceof SAXException se) {
+				throw se;
+			}
+			if (cause instanceof IOException ioe) {
+				throw ioe;
+			}
+			if (cause instanceof ParserConfigurationException pce) {
+				throw pce;
+			}
+			throw new IOException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			pool.shutdownNow();
+			awaitTermination(pool);
+			pipeline.abort();
+			throw new IOException(e);
+		}
+		pool.shutdown();
+		pipeline.finish();
+	}
+
+	private static void awaitTermination(ExecutorService pool) {
+		try {
+			pool.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void parseChunk(byte[] prolog, byte[] chunk, byte[] epilog, LoadPipeline pipeline, long base)
+			throws SAXException, IOException, ParserConfigurationException {
+		byte[] document = new byte[prolog.length + chunk.length + epilog.length];
+		System.arraycopy(prolog, 0, document, 0, prolog.length);
+		System.arraycopy(chunk, 0, document, prolog.length, chunk.length);
+		System.arraycopy(epilog, 0, document, prolog.length + chunk.length, epilog.length);
+		TMXContentHandler handler = new TMXContentHandler(store);
+		if (pipeline != null) {
+			handler.setPipeline(pipeline, base);
+		}
+		TmxStreams.parse(new InputSource(new ByteArrayInputStream(document)), handler);
+	}
+
+	private boolean isSingleByte() {
+		if (size < 4) {
+			return false;
+		}
+		byte b0 = byteAt(0);
+		byte b1 = byteAt(1);
+		// UTF-16 BOM or "<" followed or preceded by a zero byte
+		return !((b0 == (byte) 0xFE && b1 == (byte) 0xFF) || (b0 == (byte) 0xFF && b1 == (byte) 0xFE)
+				|| b0 == 0 || b1 == 0);
+	}
+
+	private boolean scan(List<Long> boundaries) {
+		long bodyStart = -1l;
+		long bodyEnd = -1l;
+		long chunkStart = -1l;
+		long i = 0;
+		while (i < size) {
+			i = nextTag(i);
+			if (i == -1l) {
+				break;
+			}
+			if (matches(i, COMMENT)) {
+				i = skip(i + COMMENT.length, COMMENT_END);
+			} else if (matches(i, CDATA)) {
+				i = skip(i + CDATA.length, CDATA_END);
+			} else if (matches(i, PI)) {
+				i = skip(i + PI.length, PI_END);
+			} else if (bodyStart == -1l) {
+				if (matches(i, BODY) && isNameEnd(i + BODY.length)) {
+					long close = skip(i, new byte[] { '>' });
+					if (close == -1l || byteAt(close - 2) == '/') {
+						// missing or empty <body/>
+						return false;
+					}
+					bodyStart = close;
+					boundaries.add(bodyStart);
+					i = close;
+				} else {
+					i++;
+				}
+			} else if (matches(i, TU) && isNameEnd(i + TU.length)) {
+				if (chunkStart == -1l || i - chunkStart >= CHUNK_SIZE) {
+					if (chunkStart != -1l) {
+						boundaries.add(i);
+					}
+					chunkStart = i;
+				}
+				i += TU.length;
+			} else if (matches(i, BODY_END)) {
+				bodyEnd = i;
+				i += BODY_END.length;
+			} else {
+				i++;
+			}
+			if (i == -1l) {
+				return false;
+			}
+		}
+		if (bodyStart == -1l || bodyEnd == -1l || chunkStart == -1l) {
+			return false;
+		}
+		boundaries.add(bodyEnd);
+		return true;
+	}
+
+	// returns the position of the next '<', -1 if there is none
+	private long nextTag(long i) {
+		while (i < size) {
+			MappedByteBuffer window = windows[(int) (i / WINDOW)];
+			int limit = window.limit();
+			for (int j = (int) (i % WINDOW); j < limit; j++) {
+				if (window.get(j) == '<') {
+					return i - i % WINDOW + j;
+				}
+			}
+			i = i - i % WINDOW + limit;
+		}
+		return -1l;
+	}
+
+	private boolean isNameEnd(long i) {
+		if (i >= size) {
+			return false;
+		}
+		byte b = byteAt(i);
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '>' || b == '/';
+	}
+
+	private boolean matches(long i, byte[] bytes) {
+		if (i + bytes.length > size) {
+			return false;
+		}
+		for (int j = 0; j < bytes.length; j++) {
+			if (byteAt(i + j) != bytes[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// returns the position after the next occurrence of bytes, -1 if not found
+	private long skip(long i, byte[] bytes) {
+		while (i < size) {
+			if (matches(i, bytes)) {
+				return i + bytes.length;
+			}
+			i++;
+		}
+		return -1l;
+	}
+
+	private byte byteAt(long i) {
+		return windows[(int) (i / WINDOW)].get((int) (i % WINDOW));
+	}
+
+	private byte[] read(long start, long end) {
+		byte[] bytes = new byte[(int) (end - start)];
+		int offset = 0;
+		while (start + offset < end) {
+			long i = start + offset;
+			MappedByteBuffer window = windows[(int) (i / WINDOW)];
+			int from = (int) (i % WINDOW);
+			int length = (int) Math.min(end - i, WINDOW - from);
+			window.get(from, bytes, offset, length);
+			offset += length;
+		}
+		return bytes;
+	}
+}
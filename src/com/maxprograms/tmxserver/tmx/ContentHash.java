@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+
+import com.maxprograms.xml.Element;
+
+class ContentHash {
+
+	// Digests that identify content without comparing elements. A segment is
+	// hashed in its binary form, so the attributes of its <tuv> don't count; a
+	// unit hashes the language and segment hash of each tuv in language order.
+
+	private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	});
+
+	private ContentHash() {
+		// do not instantiate this class
+	}
+
+	static byte[] segment(Element seg) {
+		return DIGEST.get().digest(seg != null ? TuvCodec.encode(seg) : new byte[0]);
+	}
+
+	static byte[] unit(SortedMap<String, byte[]> segments) {
+		MessageDigest digest = DIGEST.get();
+		Iterator<Map.Entry<String, byte[]>> it = segments.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, byte[]> entry = it.next();
+			digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(entry.getValue());
+		}
+		return digest.digest();
+	}
+}
@@ -69,7 +69,7 @@ public class CountStore implements StoreInterface {
 	}
 
 	@Override
-	public String saveData(String id, String lang, String value) {
+	public String saveData(long id, String lang, String value) {
 		return null;
 	}
 
@@ -89,12 +89,12 @@ public class CountStore implements StoreInterface {
 	}
 
 	@Override
-	public Element getTu(String id) {
+	public Element getTu(long id) {
 		return null;
 	}
 
 	@Override
-	public void delete(List<String> selected) {
+	public void delete(List<Long> selected) {
 		// do nothing
 	}
 
@@ -109,8 +109,8 @@ public class CountStore implements StoreInterface {
 	}
 
 	@Override
-	public void insertUnit(String id) {
-		// do nothing
+	public long insertUnit(String tuid) {
+		return 0l;
 	}
 
 	@Override
@@ -159,17 +159,17 @@ public class CountStore implements StoreInterface {
 	}
 
 	@Override
-	public void setTuAttributes(String id, List<String[]> attributes) {
+	public void setTuAttributes(long id, List<String[]> attributes) {
 		// do nothing
 	}
 
 	@Override
-	public void setTuProperties(String id, List<String[]> properties) {
+	public void setTuProperties(long id, List<String[]> properties) {
 		// do nothing
 	}
 
 	@Override
-	public void setTuNotes(String id, List<String> notes) {
+	public void setTuNotes(long id, List<String> notes) {
 		// do nothing
 	}
 
@@ -189,22 +189,22 @@ public class CountStore implements StoreInterface {
 	}
 
 	@Override
-	public Element getTuv(String id, String lang) {
+	public Element getTuv(long id, String lang) {
 		return null;
 	}
 
 	@Override
-	public void setTuvAttributes(String id, String lang, List<String[]> attributes) {
+	public void setTuvAttributes(long id, String lang, List<String[]> attributes) {
 		// do nothing
 	}
 
 	@Override
-	public void setTuvProperties(String id, String lang, List<String[]> dataList) {
+	public void setTuvProperties(long id, String lang, List<String[]> dataList) {
 		// do nothing
 	}
 
 	@Override
-	public void setTuvNotes(String id, String lang, List<String> notes) {
+	public void setTuvNotes(long id, String lang, List<String> notes) {
 		// do nothing
 	}
 
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.xml.sax.SAXException;
+
+import com.maxprograms.languages.Language;
+
+// store that holds the file open in the editor
+public interface EditorStore extends StoreInterface {
+
+	void storeUnit(UnitData unit) throws IOException, SQLException;
+
+	void loadCompleted() throws IOException, SQLException;
+
+	boolean isRestored();
+
+	long getStored();
+
+	void fileSaved(File file) throws IOException, SQLException;
+
+	Progress getLoadProgress();
+
+	Progress getSaveProgress();
+
+	Progress getExportProgress();
+
+	Progress getProcessProgress();
+
+	void cleanUnits(boolean tags, boolean spaces)
+			throws IOException, SQLException, SAXException, ParserConfigurationException;
+
+	long removeDuplicates(boolean keepNewest) throws IOException, SQLException;
+
+	long deleteFiltered(String filterText, Language filterLanguage, boolean caseSensitive, boolean filterUntranslated,
+			boolean regExp, Language filterSrcLanguage) throws IOException, SQLException;
+
+	// a delete filter needs the languages it refers to and can't select every unit
+	static void checkDeleteFilter(String filterText, Language filterLanguage, boolean filterUntranslated,
+			Language filterSrcLanguage) throws IOException {
+		if (filterUntranslated && filterSrcLanguage == null) {
+			throw new IOException(Messages.getString("EditorStore.0"));
+		}
+		boolean hasText = filterText != null && !filterText.isEmpty();
+		if (hasText && filterLanguage == null) {
+			throw new IOException(Messages.getString("EditorStore.1"));
+		}
+		if (!hasText && !filterUntranslated) {
+			throw new IOException(Messages.getString("EditorStore.2"));
+		}
+	}
+
+	void setFileAttributes(JSONObject attributes);
+
+	void setFileNotes(JSONArray notes);
+
+	void setFileProperties(JSONArray properties);
+
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+import com.maxprograms.xml.Element;
+
+class ElementCache<K> {
+
+	// Least recently used elements, stored and returned as copies because callers
+	// modify the elements they receive.
+
+	private Map<K, Element> elements;
+	private int capacity;
+	private long hits;
+	private long misses;
+
+	ElementCache(int capacity) {
+		this.capacity = capacity;
+		elements = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Element> eldest) {
+				return size() > ElementCache.this.capacity;
+			}
+		};
+	}
+
+	synchronized Element get(K key) {
+		Element e = elements.get(key);
+		if (e == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return copy(e);
+	}
+
+	synchronized void put(K key, Element e) {
+		if (capacity > 0) {
+			elements.put(key, copy(e));
+		}
+	}
+
+	// write-through: only elements already cached are refreshed, so bulk updates
+	// don't push out the units being edited
+	synchronized void update(K key, Element e) {
+		if (elements.containsKey(key)) {
+			elements.put(key, copy(e));
+		}
+	}
+
+	synchronized void remove(K key) {
+		elements.remove(key);
+	}
+
+	synchronized void clear() {
+		elements.clear();
+	}
+
+	synchronized JSONObject toJSON() {
+		JSONObject json = new JSONObject();
+		json.put("capacity", capacity);
+		json.put("size", elements.size());
+		json.put("hits", hits);
+		json.put("misses", misses);
+		return json;
+	}
+
+	private static Element copy(Element e) {
+		Element result = new Element();
+		result.clone(e);
+		return result;
+	}
+}
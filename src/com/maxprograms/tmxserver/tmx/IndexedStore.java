@@ -0,0 +1,1223 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.TimeoutException;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.xml.sax.SAXException;
+
+import com.maxprograms.languages.Language;
+import com.maxprograms.tmxserver.Constants;
+import com.maxprograms.tmxserver.TMXService;
+import com.maxprograms.tmxserver.excel.ExcelWriter;
+import com.maxprograms.tmxserver.excel.Sheet;
+import com.maxprograms.tmxserver.models.TUnit;
+import com.maxprograms.tmxserver.utils.TextUtils;
+import com.maxprograms.xml.Document;
+import com.maxprograms.xml.Element;
+import com.maxprograms.xml.Indenter;
+import com.maxprograms.xml.SAXBuilder;
+
+abstract class IndexedStore implements EditorStore {
+
+	// Common part of the stores that keep units in an off-heap arena. The heap
+	// only holds arrays indexed by unit; a unit id is its index plus one and a
+	// deleted unit keeps its slot with no address. Subclasses decide how the
+	// records of a unit are laid out in the arena.
+
+	protected static final long NONE = -1l;
+
+	protected OffHeapArena arena;
+	protected Set<String> languages;
+	private Map<String, String> codes;
+	private Element header;
+
+	protected int size;
+	protected int live;
+	protected long[] units;
+	private long[] positions;
+	private long position;
+
+	// unit indexes by position; deleted units are skipped when reading
+	private int[] order;
+	private int orderSize;
+	private boolean ordered;
+
+	protected long changes;
+	private String view;
+	private long viewChanges;
+	private int[] viewUnits;
+
+	private long discarded;
+	private long processed;
+	private long saved;
+	private long exported;
+	private long stored;
+	private int indentation;
+	private boolean setChangeId;
+	private boolean loading;
+	private long loadStart;
+	private SAXBuilder builder;
+	private Progress loadProgress;
+	private Progress saveProgress;
+	private Progress exportProgress;
+	private Progress processProgress;
+
+	protected IndexedStore(File source) throws IOException {
+		loadStart = System.nanoTime();
+		loadProgress = new Progress();
+		loadProgress.start(source.length(), 0l);
+		saveProgress = new Progress();
+		exportProgress = new Progress();
+		processProgress = new Progress();
+		builder = new SAXBuilder();
+		languages = new TreeSet<>();
+		codes = new HashMap<>();
+		units = new long[1024];
+		positions = new long[1024];
+		order = new int[1024];
+		ordered = true;
+		setChangeId = TMXService.getPreferences().getBoolean("changeId");
+		loading = true;
+	}
+
+	// stores the records of a loaded unit and registers them with addUnit
+	protected abstract void appendUnit(UnitData data, Element tu, long pos) throws IOException;
+
+	// the address of a new unit without tuvs
+	protected abstract long appendTu(Element tu);
+
+	protected abstract void languageAdded(String lang);
+
+	protected abstract String readPure(int index, String lang);
+
+	protected abstract Element readTu(int index);
+
+	protected abstract Element readTuv(int index, String lang);
+
+	protected abstract Map<String, Element> readTuvs(int index);
+
+	protected abstract void writeTu(int index, Element tu);
+
+	// tuvs by language; a null tuv removes the language from the unit
+	protected abstract void writeTuvs(int index, Map<String, Element> tuvs);
+
+	// releases the records of a unit that is being deleted
+	protected abstract void discard(int index);
+
+	protected abstract void compact();
+
+	protected abstract void dropLanguage(String lang) throws IOException;
+
+	protected abstract void renameLanguage(String oldCode, String newCode);
+
+	@Override
+	public void storeTU(Element tu) throws IOException {
+		storeUnit(UnitData.prepare(tu));
+	}
+
+	@Override
+	public synchronized void storeUnit(UnitData data) throws IOException {
+		long start = System.nanoTime();
+		if (!data.getTuvs().isEmpty()) {
+			Element tu = data.getElement();
+			if (tu == null) {
+				tu = parseElement(data.getTu());
+			}
+			long pos = data.getPosition();
+			if (pos == -1l) {
+				pos = position++;
+			} else if (pos >= position) {
+				position = pos + 1;
+			}
+			appendUnit(data, tu, pos);
+			stored++;
+		} else {
+			discarded++;
+		}
+		processed++;
+		if (loading) {
+			loadProgress.addUnits(1);
+			loadProgress.addTime("store", System.nanoTime() - start);
+		}
+	}
+
+	protected int addUnit(long address, long pos) {
+		if (size == units.length) {
+			int capacity = units.length * 2;
+			units = Arrays.copyOf(units, capacity);
+			positions = Arrays.copyOf(positions, capacity);
+		}
+		int index = size++;
+		units[index] = address;
+		positions[index] = pos;
+		live++;
+		changes++;
+		if (ordered && (orderSize == 0 || positions[order[orderSize - 1]] < pos)) {
+			if (orderSize == order.length) {
+				order = Arrays.copyOf(order, order.length * 2);
+			}
+			order[orderSize++] = index;
+		} else {
+			// units from a chunked load arrive out of order
+			ordered = false;
+		}
+		return index;
+	}
+
+	protected int[] getOrder() {
+		if (!ordered) {
+			long[] sorted = new long[live];
+			int count = 0;
+			for (int i = 0; i < size; i++) {
+				if (units[i] != NONE) {
+					sorted[count++] = positions[i];
+				}
+			}
+			Arrays.sort(sorted);
+			order = new int[Math.max(live, 1024)];
+			// positions are unique, so the rank of each one is its place in the order
+			for (int i = 0; i < size; i++) {
+				if (units[i] != NONE) {
+					order[Arrays.binarySearch(sorted, positions[i])] = i;
+				}
+			}
+			orderSize = live;
+			ordered = true;
+		}
+		return order;
+	}
+
+	protected int getOrderSize() {
+		return orderSize;
+	}
+
+	// languages are matched ignoring case and the separator used
+	protected String registerLanguage(String lang) {
+		String lower = lang.toLowerCase().replace("-", "_");
+		if (!codes.containsKey(lower)) {
+			codes.put(lower, lang);
+			languages.add(lang);
+			languageAdded(lang);
+		}
+		return codes.get(lower);
+	}
+
+	protected String getCode(String lang) {
+		String code = codes.get(lang.toLowerCase().replace("-", "_"));
+		return code != null ? code : lang;
+	}
+
+	private int getIndex(long id) {
+		int index = (int) (id - 1);
+		if (index < 0 || index >= size || units[index] == NONE) {
+			return -1;
+		}
+		return index;
+	}
+
+	private void writeTuv(int index, String lang, Element tuv) {
+		Map<String, Element> tuvs = new TreeMap<>();
+		tuvs.put(lang, tuv);
+		writeTuvs(index, tuvs);
+	}
+
+	private void delete(int index) {
+		discard(index);
+		units[index] = NONE;
+		live--;
+		changes++;
+	}
+
+	private void setChanged(Element element) {
+		if (setChangeId) {
+			element.setAttribute("changeid", System.getProperty("user.name"));
+			element.setAttribute("changedate", TmxUtils.tmxDate());
+		}
+	}
+
+	private Element parseElement(String xml) throws IOException {
+		try {
+			Document doc = new SAXBuilder()
+					.build(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+			return doc.getRootElement();
+		} catch (SAXException | ParserConfigurationException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public void storeHeader(Element header) {
+		this.header = header;
+	}
+
+	@Override
+	public Element getHeader() {
+		return header;
+	}
+
+	@Override
+	public synchronized Set<String> getLanguages() {
+		// a copy, as languages may still be added by the loader
+		return new TreeSet<>(languages);
+	}
+
+	@Override
+	public synchronized List<TUnit> getUnits(long start, int count, String filterText, Language filterLanguage,
+			boolean caseSensitive, boolean filterUntranslated, boolean regExp, Language filterSrcLanguage,
+			Language sortLanguage, boolean ascending) throws IOException {
+		String filterLang = filterLanguage != null ? filterLanguage.getCode() : null;
+		String key = filterText + '\n' + filterLang + '\n' + caseSensitive + '\n' + regExp + '\n'
+				+ filterUntranslated + '\n' + (filterSrcLanguage != null ? filterSrcLanguage.getCode() : null) + '\n'
+				+ (sortLanguage != null ? sortLanguage.getCode() : null) + '\n' + ascending;
+		// the units of a view are kept for the following pages until data changes
+		if (!key.equals(view) || changes != viewChanges) {
+			viewUnits = selectUnits(filterText, filterLang, caseSensitive, regExp,
+					filterUntranslated ? filterSrcLanguage.getCode() : null,
+					sortLanguage != null ? sortLanguage.getCode() : null, ascending);
+			view = key;
+			viewChanges = changes;
+		}
+		processed = 0l;
+		List<TUnit> result = new Vector<>();
+		for (long i = start; i < viewUnits.length && i < start + count; i++) {
+			int index = viewUnits[(int) i];
+			Map<String, Element> tuvs = readTuvs(index);
+			Map<String, String> map = new HashMap<>();
+			Iterator<String> it = languages.iterator();
+			while (it.hasNext()) {
+				String lang = it.next();
+				Element tuv = tuvs.get(lang);
+				if (tuv != null) {
+					map.put(lang, TmxUtils.pureText(tuv.getChild("seg"), true, filterText, caseSensitive, regExp,
+							filterLang));
+				} else {
+					map.put(lang, "");
+				}
+			}
+			result.add(new TUnit(1 + processed + start, Long.toString(index + 1l), map));
+			processed++;
+		}
+		return result;
+	}
+
+	private int[] selectUnits(String filterText, String filterLang, boolean caseSensitive, boolean regExp,
+			String srcLang, String sortLang, boolean ascending) throws IOException {
+		boolean filter = filterText != null && !filterText.isEmpty();
+		String lowerText = filter ? filterText.toLowerCase(Locale.ROOT) : null;
+		int[] list = getOrder();
+		int[] selected = new int[orderSize];
+		int count = 0;
+		try {
+			for (int i = 0; i < orderSize; i++) {
+				int index = list[i];
+				if (units[index] == NONE) {
+					continue;
+				}
+				if (filter) {
+					String pure = readPure(index, filterLang);
+					if (pure == null) {
+						continue;
+					}
+					if (regExp) {
+						if (!PatternCache.find(filterText, pure)) {
+							continue;
+						}
+					} else if (caseSensitive) {
+						if (pure.indexOf(filterText) == -1) {
+							continue;
+						}
+					} else if (pure.toLowerCase(Locale.ROOT).indexOf(lowerText) == -1) {
+						continue;
+					}
+				}
+				if (srcLang != null && isTranslated(index, srcLang, false)) {
+					continue;
+				}
+				selected[count++] = index;
+			}
+		} catch (TimeoutException e) {
+			throw new IOException(e.getMessage());
+		}
+		int[] matches = Arrays.copyOf(selected, count);
+		if (sortLang != null) {
+			// units without text in the sort language go first in ascending order and
+			// last in descending order
+			String[] keys = new String[count];
+			Integer[] slots = new Integer[count];
+			for (int i = 0; i < count; i++) {
+				keys[i] = readPure(matches[i], sortLang);
+				slots[i] = i;
+			}
+			Arrays.sort(slots, (a, b) -> {
+				String ka = keys[a];
+				String kb = keys[b];
+				int result = 0;
+				if (ka == null || kb == null) {
+					result = ka == null ? (kb == null ? 0 : -1) : 1;
+				} else {
+					result = ka.compareTo(kb);
+				}
+				if (!ascending) {
+					result = -result;
+				}
+				return result != 0 ? result : Long.compare(positions[matches[a]], positions[matches[b]]);
+			});
+			int[] sorted = new int[count];
+			for (int i = 0; i < count; i++) {
+				sorted[i] = matches[slots[i]];
+			}
+			return sorted;
+		}
+		return matches;
+	}
+
+	// true when a language other than srcLang has text; removing untranslated
+	// units also treats whitespace-only text as missing
+	private boolean isTranslated(int index, String srcLang, boolean ignoreBlank) {
+		String code = getCode(srcLang);
+		Iterator<String> it = languages.iterator();
+		while (it.hasNext()) {
+			String lang = it.next();
+			if (!lang.equals(code)) {
+				String pure = readPure(index, lang);
+				if (pure != null && !(ignoreBlank ? pure.isBlank() : pure.isEmpty())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public synchronized void loadCompleted() {
+		loadProgress.setTime("parse", (System.nanoTime() - loadStart) / 1000000);
+		loading = false;
+		loadProgress.finish();
+	}
+
+	@Override
+	public boolean isRestored() {
+		return false;
+	}
+
+	@Override
+	public synchronized long getStored() {
+		return stored;
+	}
+
+	@Override
+	public void fileSaved(File file) {
+		// nothing is kept after closing
+	}
+
+	@Override
+	public Progress getLoadProgress() {
+		return loadProgress;
+	}
+
+	@Override
+	public Progress getSaveProgress() {
+		return saveProgress;
+	}
+
+	@Override
+	public Progress getExportProgress() {
+		return exportProgress;
+	}
+
+	@Override
+	public Progress getProcessProgress() {
+		return processProgress;
+	}
+
+	public synchronized JSONObject getArenaStatistics() {
+		JSONObject result = new JSONObject();
+		result.put("units", live);
+		result.put("size", arena.getSize());
+		result.put("garbage", arena.getGarbage());
+		result.put("capacity", arena.getCapacity());
+		return result;
+	}
+
+	@Override
+	public synchronized void close() {
+		arena.release();
+		units = new long[0];
+		positions = new long[0];
+		order = new int[0];
+		size = 0;
+		live = 0;
+		orderSize = 0;
+		viewUnits = null;
+	}
+
+	@Override
+	public synchronized long getCount() {
+		return live;
+	}
+
+	@Override
+	public long getDiscarded() {
+		return discarded;
+	}
+
+	@Override
+	public synchronized String saveData(long id, String lang, String value) throws IOException {
+		int index = getIndex(id);
+		if (index == -1) {
+			return "";
+		}
+		Element tuv = readTuv(index, lang);
+		String text = value;
+		if (tuv != null) {
+			Element seg = tuv.getChild("seg");
+			TmxUtils.pureText(seg, true, null, false, false, lang);
+			Map<String, String> tags = TmxUtils.getTags();
+			Set<String> keys = tags.keySet();
+			Iterator<String> it = keys.iterator();
+			while (it.hasNext()) {
+				String key = it.next();
+				text = TextUtils.replaceAll(text, key, tags.get(key), false);
+			}
+			try {
+				Document d = builder
+						.build(new ByteArrayInputStream(("<seg>" + text + "</seg>").getBytes(StandardCharsets.UTF_8)));
+				seg.setContent(d.getRootElement().getContent());
+			} catch (Exception ex) {
+				seg.setText(text);
+			}
+			setChanged(tuv);
+		} else {
+			tuv = new Element("tuv");
+			tuv.setAttribute("xml:lang", lang);
+			tuv.setAttribute("creationid", System.getProperty("user.name"));
+			tuv.setAttribute("creationdate", TmxUtils.tmxDate());
+			Element seg = new Element("seg");
+			seg.setText(text);
+			tuv.addContent(seg);
+		}
+		writeTuv(index, lang, tuv);
+		return TmxUtils.pureText(tuv.getChild("seg"), true, null, false, false, lang);
+	}
+
+	@Override
+	public synchronized void writeFile(File file) throws IOException {
+		saved = 0l;
+		saveProgress.start(0l, live);
+		try (OutputStream out = TmxStreams.create(file, saveProgress)) {
+			writeString(out, """
+					<?xml version="1.0" encoding="UTF-8"?>
+					<!DOCTYPE tmx PUBLIC "-//LISA OSCAR:1998//DTD for Translation Memory eXchange//EN" "tmx14.dtd">
+					<tmx version="1.4">
+					""");
+			setChanged(header);
+			writeString(out, TextUtils.padding(1, indentation) + header.toString() + "\n");
+			writeString(out, TextUtils.padding(1, indentation) + "<body>\n");
+			int[] list = getOrder();
+			for (int i = 0; i < orderSize; i++) {
+				int index = list[i];
+				if (units[index] == NONE) {
+					continue;
+				}
+				long start = System.nanoTime();
+				Map<String, Element> tuvs = readTuvs(index);
+				if (tuvs.isEmpty()) {
+					saveProgress.addUnits(1);
+					continue;
+				}
+				Element tu = readTu(index);
+				Iterator<Element> tuvIt = tuvs.values().iterator();
+				while (tuvIt.hasNext()) {
+					tu.addContent(tuvIt.next());
+				}
+				long read = System.nanoTime();
+				saveProgress.addTime("read", read - start);
+				Indenter.indent(tu, 3, indentation);
+				writeString(out, TextUtils.padding(2, indentation) + tu.toString() + "\n");
+				saved++;
+				saveProgress.addTime("write", System.nanoTime() - read);
+				saveProgress.addUnits(1);
+			}
+			writeString(out, TextUtils.padding(1, indentation) + "</body>\n");
+			writeString(out, "</tmx>");
+		} finally {
+			saveProgress.finish();
+		}
+	}
+
+	private void writeString(OutputStream out, String string) throws IOException {
+		out.write(string.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public long getSaved() {
+		return saved;
+	}
+
+	@Override
+	public void commit() {
+		// changes are applied as they are made
+	}
+
+	@Override
+	public synchronized Element getTu(long id) {
+		int index = getIndex(id);
+		return index == -1 ? null : readTu(index);
+	}
+
+	@Override
+	public synchronized Element getTuv(long id, String lang) {
+		int index = getIndex(id);
+		return index == -1 ? null : readTuv(index, lang);
+	}
+
+	@Override
+	public synchronized void delete(List<Long> selected) {
+		processed = 0l;
+		processProgress.start(0l, selected.size());
+		Iterator<Long> it = selected.iterator();
+		while (it.hasNext()) {
+			int index = getIndex(it.next());
+			if (index != -1) {
+				delete(index);
+				processed++;
+			}
+			processProgress.addUnits(1);
+		}
+		compact();
+		processProgress.finish();
+	}
+
+	@Override
+	public synchronized long deleteFiltered(String filterText, Language filterLanguage, boolean caseSensitive,
+			boolean filterUntranslated, boolean regExp, Language filterSrcLanguage) throws IOException {
+		EditorStore.checkDeleteFilter(filterText, filterLanguage, filterUntranslated, filterSrcLanguage);
+		processed = 0l;
+		long start = System.nanoTime();
+		int[] selected = selectUnits(filterText, filterLanguage != null ? filterLanguage.getCode() : null,
+				caseSensitive, regExp, filterUntranslated ? filterSrcLanguage.getCode() : null, null, true);
+		processProgress.start(0l, selected.length);
+		processProgress.addTime("select", System.nanoTime() - start);
+		for (int i = 0; i < selected.length; i++) {
+			delete(selected[i]);
+			processed++;
+			processProgress.addUnits(1);
+		}
+		compact();
+		processProgress.finish();
+		return processed;
+	}
+
+	@Override
+	public synchronized void replaceText(String search, String replace, Language language, boolean regExp) {
+		processed = 0l;
+		String lang = getCode(language.getCode());
+		int[] list = getOrder();
+		for (int i = 0; i < orderSize; i++) {
+			int index = list[i];
+			if (units[index] == NONE) {
+				continue;
+			}
+			Element tuv = readTuv(index, lang);
+			if (tuv != null) {
+				Element seg = tuv.getChild("seg");
+				String segText = TmxUtils.textOnly(seg);
+				if (regExp || segText.indexOf(search) != -1) {
+					TmxUtils.replaceText(seg, search, replace, regExp);
+					if (!segText.equals(TmxUtils.textOnly(seg))) {
+						setChanged(tuv);
+						writeTuv(index, lang, tuv);
+					}
+				}
+			}
+			processed++;
+		}
+		compact();
+	}
+
+	@Override
+	public long getProcessed() {
+		return processed;
+	}
+
+	@Override
+	public synchronized long insertUnit(String tuid) {
+		Element tu = new Element("tu");
+		tu.setAttribute("tuid", tuid);
+		tu.setAttribute("creationdate", TmxUtils.tmxDate());
+		tu.setAttribute("creationid", System.getProperty("user.name"));
+		tu.setAttribute("creationtool", Constants.APPNAME);
+		tu.setAttribute("creationtoolversion", Constants.VERSION);
+		return addUnit(appendTu(tu), position++) + 1l;
+	}
+
+	@Override
+	public synchronized long removeUntranslated(Language language) {
+		long result = 0l;
+		processed = 0l;
+		processProgress.start(0l, 0l);
+		String srcLang = getCode(language.getCode());
+		if (!languages.contains(srcLang)) {
+			processProgress.finish();
+			return result;
+		}
+		for (int index = 0; index < size; index++) {
+			if (units[index] != NONE && readPure(index, srcLang) != null && !isTranslated(index, srcLang, true)) {
+				delete(index);
+				result++;
+				processProgress.addUnits(1);
+			}
+		}
+		compact();
+		processed = result;
+		processProgress.finish();
+		return result;
+	}
+
+	@Override
+	public synchronized void removeSameAsSource(Language language) {
+		String srcLang = getCode(language.getCode());
+		processed = 0l;
+		int[] list = getOrder();
+		for (int i = 0; i < orderSize; i++) {
+			int index = list[i];
+			if (units[index] == NONE) {
+				continue;
+			}
+			Element srcTuv = readTuv(index, srcLang);
+			if (srcTuv != null) {
+				Element src = srcTuv.getChild("seg");
+				int count = 0;
+				Map<String, Element> removed = new TreeMap<>();
+				Map<String, Element> tuvs = readTuvs(index);
+				Iterator<String> langIt = tuvs.keySet().iterator();
+				while (langIt.hasNext()) {
+					String lang = langIt.next();
+					if (!lang.equals(srcLang)) {
+						if (src.equals(tuvs.get(lang).getChild("seg"))) {
+							removed.put(lang, null);
+						} else {
+							count++;
+						}
+					}
+				}
+				if (count == 0) {
+					delete(index);
+				} else if (!removed.isEmpty()) {
+					writeTuvs(index, removed);
+				}
+			}
+		}
+		compact();
+	}
+
+	@Override
+	public synchronized void addLanguage(Language language) {
+		registerLanguage(language.getCode());
+	}
+
+	@Override
+	public synchronized void removeLanguage(Language language) throws IOException {
+		String lang = language.getCode();
+		if (languages.contains(lang)) {
+			codes.remove(lang.toLowerCase().replace("-", "_"));
+			languages.remove(lang);
+			changes++;
+			dropLanguage(lang);
+		}
+	}
+
+	@Override
+	public synchronized void removeTags() throws SAXException, IOException, ParserConfigurationException {
+		cleanUnits(true, false);
+	}
+
+	// tags and surrounding spaces are removed in one pass; each unit is written
+	// once with all its cleaned tuvs
+	@Override
+	public synchronized void cleanUnits(boolean tags, boolean spaces)
+			throws SAXException, IOException, ParserConfigurationException {
+		processed = 0l;
+		processProgress.start(0l, live);
+		int[] list = getOrder();
+		for (int i = 0; i < orderSize; i++) {
+			int index = list[i];
+			if (units[index] == NONE) {
+				continue;
+			}
+			Map<String, Element> cleaned = new TreeMap<>();
+			Iterator<String> it = languages.iterator();
+			while (it.hasNext()) {
+				String lang = it.next();
+				String pure = readPure(index, lang);
+				if (pure == null || (!tags && pure.equals(pure.strip()))) {
+					continue;
+				}
+				Element tuv = readTuv(index, lang);
+				if (TmxUtils.cleanSegment(tuv.getChild("seg"), tags, spaces)) {
+					setChanged(tuv);
+					cleaned.put(lang, tuv);
+				}
+			}
+			if (!cleaned.isEmpty()) {
+				writeTuvs(index, cleaned);
+			}
+			processed++;
+			processProgress.addUnits(1);
+		}
+		compact();
+		processProgress.finish();
+	}
+
+	@Override
+	public synchronized void changeLanguage(Language oldLanguage, Language newLanguage) {
+		String oldCode = oldLanguage.getCode();
+		String newCode = newLanguage.getCode();
+		if (!languages.contains(oldCode) || languages.contains(newCode)) {
+			return;
+		}
+		codes.remove(oldCode.toLowerCase().replace("-", "_"));
+		languages.remove(oldCode);
+		codes.put(newCode.toLowerCase().replace("-", "_"), newCode);
+		languages.add(newCode);
+		renameLanguage(oldCode, newCode);
+		changes++;
+	}
+
+	@Override
+	public void removeDuplicates() {
+		removeDuplicates(false);
+	}
+
+	// units with the same segments in every language; the first one is kept, or
+	// the one changed last. Dates are only read for the duplicates found
+	@Override
+	public synchronized long removeDuplicates(boolean keepNewest) {
+		processed = 0l;
+		processProgress.start(0l, 0l);
+		Map<ByteBuffer, Integer> kept = new HashMap<>();
+		int[] list = getOrder();
+		for (int i = 0; i < orderSize; i++) {
+			int index = list[i];
+			if (units[index] == NONE) {
+				continue;
+			}
+			ByteBuffer key = segmentsKey(index);
+			Integer first = kept.putIfAbsent(key, index);
+			if (first != null) {
+				if (keepNewest && changed(index).compareTo(changed(first)) >= 0) {
+					kept.put(key, index);
+					delete(first);
+				} else {
+					delete(index);
+				}
+				processed++;
+				processProgress.addUnits(1);
+			}
+		}
+		compact();
+		processProgress.finish();
+		return processed;
+	}
+
+	private String changed(int index) {
+		String result = UnitData.date(readTu(index));
+		Iterator<Element> it = readTuvs(index).values().iterator();
+		while (it.hasNext()) {
+			String date = UnitData.date(it.next());
+			if (date.compareTo(result) > 0) {
+				result = date;
+			}
+		}
+		return result;
+	}
+
+	private ByteBuffer segmentsKey(int index) {
+		List<byte[]> parts = new ArrayList<>();
+		int length = 0;
+		Map<String, Element> tuvs = readTuvs(index);
+		Iterator<String> it = tuvs.keySet().iterator();
+		while (it.hasNext()) {
+			String lang = it.next();
+			byte[] code = lang.getBytes(StandardCharsets.UTF_8);
+			byte[] seg = TuvCodec.encode(tuvs.get(lang).getChild("seg"));
+			parts.add(code);
+			parts.add(seg);
+			length += code.length + seg.length + 8;
+		}
+		ByteBuffer key = ByteBuffer.allocate(length);
+		for (int i = 0; i < parts.size(); i++) {
+			key.putInt(parts.get(i).length);
+			key.put(parts.get(i));
+		}
+		return key.flip();
+	}
+
+	@Override
+	public synchronized void removeSpaces() throws SAXException, IOException, ParserConfigurationException {
+		cleanUnits(false, true);
+	}
+
+	@Override
+	public synchronized void consolidateUnits(Language language) {
+		// the first unit with a source segment receives the translations that
+		// later units with the same source add
+		String srcLang = getCode(language.getCode());
+		Map<ByteBuffer, Integer> groups = new HashMap<>();
+		Set<Integer> merged = new HashSet<>();
+		long moved = 0l;
+		int[] list = getOrder();
+		for (int i = 0; i < orderSize; i++) {
+			int index = list[i];
+			if (units[index] == NONE) {
+				continue;
+			}
+			Element srcTuv = readTuv(index, srcLang);
+			if (srcTuv == null) {
+				continue;
+			}
+			ByteBuffer key = ByteBuffer.wrap(TuvCodec.encode(srcTuv.getChild("seg")));
+			Integer first = groups.putIfAbsent(key, index);
+			if (first == null) {
+				continue;
+			}
+			merged.add(first);
+			Map<String, Element> added = new TreeMap<>();
+			Map<String, Element> removed = new TreeMap<>();
+			Map<String, Element> tuvs = readTuvs(index);
+			Iterator<String> it = tuvs.keySet().iterator();
+			while (it.hasNext()) {
+				String lang = it.next();
+				if (lang.equals(srcLang) || readPure(first, lang) != null) {
+					continue;
+				}
+				Element tuv = tuvs.get(lang);
+				setChanged(tuv);
+				added.put(lang, tuv);
+				removed.put(lang, null);
+				moved++;
+			}
+			if (!added.isEmpty()) {
+				writeTuvs(first, added);
+				writeTuvs(index, removed);
+			}
+		}
+		long removed = removeUntranslated(language);
+		processProgress.setCount("groups", merged.size());
+		processProgress.setCount("moved", moved);
+		processProgress.setCount("removed", removed);
+	}
+
+	@Override
+	public synchronized void setTuAttributes(long id, List<String[]> attributes) {
+		int index = getIndex(id);
+		if (index != -1) {
+			Element tu = readTu(index);
+			tu.setAttributes(new Vector<>());
+			Iterator<String[]> it = attributes.iterator();
+			while (it.hasNext()) {
+				String[] pair = it.next();
+				tu.setAttribute(pair[0], pair[1]);
+			}
+			writeTu(index, tu);
+		}
+	}
+
+	@Override
+	public synchronized void setTuvAttributes(long id, String lang, List<String[]> attributes) {
+		int index = getIndex(id);
+		Element tuv = index != -1 ? readTuv(index, lang) : null;
+		if (tuv != null) {
+			tuv.setAttributes(new Vector<>());
+			Iterator<String[]> it = attributes.iterator();
+			while (it.hasNext()) {
+				String[] pair = it.next();
+				tuv.setAttribute(pair[0], pair[1]);
+			}
+			writeTuv(index, lang, tuv);
+		}
+	}
+
+	@Override
+	public synchronized void setTuProperties(long id, List<String[]> properties) {
+		int index = getIndex(id);
+		if (index != -1) {
+			Element tu = readTu(index);
+			List<Element> content = new Vector<>();
+			Iterator<String[]> it = properties.iterator();
+			while (it.hasNext()) {
+				String[] pair = it.next();
+				if (pair[0].isEmpty() || pair[1].isEmpty()) {
+					continue;
+				}
+				Element prop = new Element("prop");
+				prop.setAttribute("type", pair[0]);
+				prop.setText(pair[1]);
+				content.add(prop);
+			}
+			content.addAll(tu.getChildren("note"));
+			tu.setChildren(content);
+			setChanged(tu);
+			writeTu(index, tu);
+		}
+	}
+
+	@Override
+	public synchronized void setTuvProperties(long id, String lang, List<String[]> properties) {
+		int index = getIndex(id);
+		Element tuv = index != -1 ? readTuv(index, lang) : null;
+		if (tuv != null) {
+			tuv.removeChild("prop");
+			List<Element> content = tuv.getChildren();
+			Iterator<String[]> it = properties.iterator();
+			while (it.hasNext()) {
+				String[] pair = it.next();
+				if (pair[0].isEmpty() || pair[1].isEmpty()) {
+					continue;
+				}
+				Element prop = new Element("prop");
+				prop.setAttribute("type", pair[0]);
+				prop.setText(pair[1]);
+				content.add(0, prop);
+			}
+			tuv.setChildren(content);
+			setChanged(tuv);
+			writeTuv(index, lang, tuv);
+		}
+	}
+
+	@Override
+	public synchronized void setTuNotes(long id, List<String> notes) {
+		int index = getIndex(id);
+		if (index != -1) {
+			Element tu = readTu(index);
+			List<Element> content = new Vector<>();
+			content.addAll(tu.getChildren("prop"));
+			Iterator<String> it = notes.iterator();
+			while (it.hasNext()) {
+				String note = it.next();
+				if (note.isEmpty()) {
+					continue;
+				}
+				Element not = new Element("note");
+				not.setText(note);
+				content.add(not);
+			}
+			tu.setChildren(content);
+			setChanged(tu);
+			writeTu(index, tu);
+		}
+	}
+
+	@Override
+	public synchronized void setTuvNotes(long id, String lang, List<String> notes) {
+		int index = getIndex(id);
+		Element tuv = index != -1 ? readTuv(index, lang) : null;
+		if (tuv != null) {
+			tuv.removeChild("note");
+			List<Element> content = tuv.getChildren();
+			Iterator<String> it = notes.iterator();
+			while (it.hasNext()) {
+				String note = it.next();
+				if (note.isEmpty()) {
+					continue;
+				}
+				Element not = new Element("note");
+				not.setText(note);
+				content.add(0, not);
+			}
+			tuv.setChildren(content);
+			setChanged(tuv);
+			writeTuv(index, lang, tuv);
+		}
+	}
+
+	@Override
+	public synchronized void exportDelimited(String file) throws IOException {
+		exported = 0l;
+		exportProgress.start(0l, live);
+		try (OutputStream stream = TmxStreams.count(new FileOutputStream(file), exportProgress)) {
+			try (OutputStreamWriter cout = new OutputStreamWriter(stream, StandardCharsets.UTF_16LE)) {
+				byte[] feff = { -1, -2 };
+				stream.write(feff);
+
+				StringBuilder langs = new StringBuilder();
+				Iterator<String> it = languages.iterator();
+				while (it.hasNext()) {
+					if (!langs.toString().isEmpty()) {
+						langs.append('\t');
+					}
+					langs.append(it.next());
+				}
+				langs.append('\n');
+				cout.write(langs.toString());
+				int[] list = getOrder();
+				for (int i = 0; i < orderSize; i++) {
+					int index = list[i];
+					if (units[index] == NONE) {
+						continue;
+					}
+					StringBuilder line = new StringBuilder();
+					Iterator<String> langIt = languages.iterator();
+					while (langIt.hasNext()) {
+						String pure = readPure(index, langIt.next());
+						String text = " ";
+						if (pure != null && !pure.isEmpty()) {
+							text = TmxUtils.cleanLines(pure);
+						}
+						if (!line.toString().isEmpty()) {
+							line.append('\t');
+						}
+						line.append(text);
+					}
+					line.append('\n');
+					cout.write(line.toString());
+					exported++;
+					exportProgress.addUnits(1);
+				}
+			}
+		} finally {
+			exportProgress.finish();
+		}
+	}
+
+	@Override
+	public long getExported() {
+		return exported;
+	}
+
+	@Override
+	public void setIndentation(int indentation) {
+		this.indentation = indentation;
+	}
+
+	@Override
+	public synchronized void exportExcel(String file) throws IOException, SAXException, ParserConfigurationException {
+		exported = 0l;
+		exportProgress.start(0l, live);
+		Map<String, String> langsMap = new HashMap<>();
+		Set<String> cols = new TreeSet<>();
+		int i = 0;
+		Iterator<String> it = languages.iterator();
+		while (it.hasNext()) {
+			String lang = it.next();
+			char c = (char) (65 + i++);
+			cols.add("" + c);
+			langsMap.put(lang, "" + c);
+		}
+
+		List<Map<String, String>> rows = new Vector<>();
+		Map<String, String> firstRow = new HashMap<>();
+		Iterator<String> langIt = languages.iterator();
+		while (langIt.hasNext()) {
+			String lang = langIt.next();
+			firstRow.put(langsMap.get(lang), lang);
+		}
+		rows.add(firstRow);
+
+		int[] list = getOrder();
+		for (int j = 0; j < orderSize; j++) {
+			int index = list[j];
+			if (units[index] == NONE) {
+				continue;
+			}
+			Map<String, String> rowMap = new HashMap<>();
+			langIt = languages.iterator();
+			while (langIt.hasNext()) {
+				String lang = langIt.next();
+				String pure = readPure(index, lang);
+				rowMap.put(langsMap.get(lang), pure != null ? pure : "");
+			}
+			rows.add(rowMap);
+			exported++;
+			exportProgress.addUnits(1);
+		}
+		long start = System.nanoTime();
+		Sheet sheet = new Sheet("Sheet1", cols, rows);
+		ExcelWriter writer = new ExcelWriter();
+		writer.writeFile(file, sheet);
+		exportProgress.addTime("write", System.nanoTime() - start);
+		exportProgress.finish();
+	}
+
+	@Override
+	public void setFileAttributes(JSONObject attributes) {
+		attributes.keySet().forEach(key -> {
+			String value = attributes.getString(key);
+			if ("o_encoding".equals(key)) {
+				key = "o-encoding";
+			}
+			if ("o_tmf".equals(key)) {
+				key = "o-tmf";
+			}
+			if (value.isEmpty() && header.hasAttribute(key)) {
+				header.removeAttribute(key);
+			} else {
+				header.setAttribute(key, value);
+			}
+		});
+	}
+
+	@Override
+	public void setFileNotes(JSONArray notes) {
+		List<Element> oldNotes = header.getChildren("note");
+		for (Element note : oldNotes) {
+			header.removeChild(note);
+		}
+		for (int i = 0; i < notes.length(); i++) {
+			Element note = new Element("note");
+			note.setText(notes.getString(i));
+			header.addContent(note);
+		}
+	}
+
+	@Override
+	public void setFileProperties(JSONArray properties) {
+		List<Element> oldProps = header.getChildren("prop");
+		for (Element prop : oldProps) {
+			header.removeChild(prop);
+		}
+		for (int i = 0; i < properties.length(); i++) {
+			JSONArray prop = properties.getJSONArray(i);
+			Element property = new Element("prop");
+			property.setAttribute("type", prop.getString(0));
+			property.setText(prop.getString(1));
+			header.addContent(property);
+		}
+	}
+}
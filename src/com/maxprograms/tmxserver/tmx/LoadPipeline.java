@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.xml.sax.SAXException;
+
+import com.maxprograms.xml.Element;
+
+class LoadPipeline {
+
+	// parser thread -> worker pool -> single writer thread
+	// futures are queued in document order, so units are stored in the order they
+	// were parsed while workers prepare them in parallel
+
+	private static final Logger LOGGER = Logger.getLogger(LoadPipeline.class.getName());
+	private static final int COMMIT_INTERVAL = 20000;
+
+	private final Future<UnitData> end = CompletableFuture.completedFuture(null);
+
+	private EditorStore store;
+	private ExecutorService workers;
+	private BlockingQueue<Future<UnitData>> queue;
+	private Thread writer;
+	private volatile Throwable error;
+
+	public LoadPipeline(EditorStore store, int threads) {
+		this.store = store;
+		if (threads > 0) {
+			workers = Executors.newFixedThreadPool(threads);
+		}
+		queue = new ArrayBlockingQueue<>(Math.max(threads, 1) * 512);
+		writer = Thread.ofPlatform().name("tmx-writer").start(this::write);
+	}
+
+	public void submit(Element tu) throws SAXException {
+		if (error != null) {
+			throw new SAXException(error.getMessage());
+		}
+		try {
+			queue.put(workers.submit(() -> UnitData.prepare(tu)));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SAXException(e);
+		}
+	}
+
+	public void store(Element tu, long position) throws SAXException {
+		if (error != null) {
+			throw new SAXException(error.getMessage());
+		}
+		UnitData unit = UnitData.prepare(tu);
+		unit.setPosition(position);
+		try {
+			queue.put(CompletableFuture.completedFuture(unit));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SAXException(e);
+		}
+	}
+
+	public void finish() throws IOException, SQLException {
+		try {
+			queue.put(end);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} finally {
+			shutdown();
+		}
+		if (error instanceof SQLException e) {
+			throw e;
+		}
+		if (error instanceof IOException e) {
+			throw e;
+		}
+		if (error instanceof RuntimeException e) {
+			throw e;
+		}
+		if (error instanceof Error e) {
+			throw e;
+		}
+		if (error != null) {
+			throw new IOException(error);
+		}
+	}
+
+	public void abort() {
+		queue.clear();
+		queue.offer(end);
+		shutdown();
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void shutdown() {
+		if (workers != null) {
+			workers.shutdown();
+		}
+	}
+
+	private void write() {
+		long count = 0;
+		boolean interrupted = false;
+		while (true) {
+			Future<UnitData> future;
+			try {
+				future = queue.take();
+			} catch (InterruptedException e) {
+				interrupted = true;
+				fail(e);
+				continue;
+			}
+			if (future == end) {
+				break;
+			}
+			if (error != null) {
+				// keep draining so the parser is not blocked before it notices the error
+				continue;
+			}
+			try {
+				store.storeUnit(future.get());
+				count++;
+				if (count % COMMIT_INTERVAL == 0) {
+					store.commit();
+				}
+			} catch (ExecutionException e) {
+				fail(e.getCause());
+			} catch (InterruptedException e) {
+				interrupted = true;
+				fail(e);
+			} catch (Throwable e) {
+				fail(e);
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void fail(Throwable e) {
+		if (error == null) {
+			LOGGER.log(Level.SEVERE, e.getMessage(), e);
+			error = e;
+		}
+	}
+}
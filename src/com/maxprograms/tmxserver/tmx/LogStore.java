@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONObject;
+
+import com.maxprograms.xml.Element;
+
+public class LogStore extends IndexedStore {
+
+	// Store for very large files. Each unit is one record in an append-only log
+	// mapped from a file in the work folder, holding the tu and the pure text and
+	// encoded form of every tuv. The heap only keeps the log address of each
+	// unit. A change appends a new version of the unit and a delete leaves a
+	// tombstone in the index. Compaction rewrites the live units in file order,
+	// so saving and exporting read the log sequentially.
+
+	private static final Logger LOGGER = Logger.getLogger(LogStore.class.getName());
+
+	private File log;
+
+	// records refer to languages by number; removed languages are null
+	private List<String> table;
+	private Map<String, Integer> ids;
+
+	private static class Unit {
+
+		private byte[] tu;
+		private Map<Integer, String> pures;
+		private Map<Integer, byte[]> tuvs;
+
+		Unit(byte[] tu) {
+			this.tu = tu;
+			pures = new TreeMap<>();
+			tuvs = new TreeMap<>();
+		}
+
+		void put(int lang, String pure, byte[] tuv) {
+			pures.put(lang, pure);
+			tuvs.put(lang, tuv);
+		}
+
+		void remove(int lang) {
+			pures.remove(lang);
+			tuvs.remove(lang);
+		}
+
+		byte[] encode() {
+			List<byte[]> texts = new ArrayList<>();
+			int length = 6 + tu.length;
+			Iterator<Integer> it = tuvs.keySet().iterator();
+			while (it.hasNext()) {
+				int lang = it.next();
+				byte[] pure = pures.get(lang).getBytes(StandardCharsets.UTF_8);
+				texts.add(pure);
+				length += 10 + pure.length + tuvs.get(lang).length;
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(length);
+			buffer.putInt(tu.length);
+			buffer.put(tu);
+			buffer.putShort((short) tuvs.size());
+			int i = 0;
+			it = tuvs.keySet().iterator();
+			while (it.hasNext()) {
+				int lang = it.next();
+				byte[] pure = texts.get(i++);
+				byte[] tuv = tuvs.get(lang);
+				buffer.putShort((short) lang);
+				buffer.putInt(pure.length);
+				buffer.put(pure);
+				buffer.putInt(tuv.length);
+				buffer.put(tuv);
+			}
+			return buffer.array();
+		}
+	}
+
+	public LogStore(File source) throws IOException {
+		super(source);
+		File folder = new File(TmxUtils.getWorkFolder(), "logs");
+		if (!folder.exists()) {
+			Files.createDirectories(folder.toPath());
+		}
+		log = File.createTempFile("units", ".log", folder);
+		arena = new MappedArena(log);
+		table = new ArrayList<>();
+		ids = new HashMap<>();
+	}
+
+	@Override
+	protected void appendUnit(UnitData data, Element tu, long pos) {
+		List<String[]> list = data.getTuvs();
+		Unit unit = new Unit(TuvCodec.encode(tu));
+		for (int i = 0; i < list.size(); i++) {
+			String[] tuv = list.get(i);
+			unit.put(ids.get(registerLanguage(tuv[0])), tuv[1], data.getEncoded().get(i));
+		}
+		addUnit(arena.append(unit.encode()), pos);
+	}
+
+	@Override
+	protected long appendTu(Element tu) {
+		return arena.append(new Unit(TuvCodec.encode(tu)).encode());
+	}
+
+	@Override
+	protected void languageAdded(String lang) {
+		ids.put(lang, table.size());
+		table.add(lang);
+	}
+
+	private int getId(String lang) {
+		Integer id = ids.get(getCode(lang));
+		return id != null ? id : -1;
+	}
+
+	private Unit readUnit(int index) {
+		ByteBuffer record = arena.view(units[index]);
+		byte[] tu = new byte[record.getInt()];
+		record.get(tu);
+		Unit unit = new Unit(tu);
+		int count = record.getShort();
+		for (int i = 0; i < count; i++) {
+			int lang = record.getShort();
+			byte[] pure = new byte[record.getInt()];
+			record.get(pure);
+			byte[] tuv = new byte[record.getInt()];
+			record.get(tuv);
+			if (table.get(lang) != null) {
+				unit.put(lang, new String(pure, StandardCharsets.UTF_8), tuv);
+			}
+		}
+		return unit;
+	}
+
+	// reads one text without decoding the rest of the record
+	@Override
+	protected String readPure(int index, String lang) {
+		int id = getId(lang);
+		if (id == -1) {
+			return null;
+		}
+		ByteBuffer record = arena.view(units[index]);
+		record.position(4 + record.getInt());
+		int count = record.getShort();
+		for (int i = 0; i < count; i++) {
+			int current = record.getShort();
+			int length = record.getInt();
+			if (current == id) {
+				byte[] pure = new byte[length];
+				record.get(pure);
+				return new String(pure, StandardCharsets.UTF_8);
+			}
+			record.position(record.position() + length);
+			length = record.getInt();
+			record.position(record.position() + length);
+		}
+		return null;
+	}
+
+	@Override
+	protected Element readTu(int index) {
+		ByteBuffer record = arena.view(units[index]);
+		byte[] tu = new byte[record.getInt()];
+		record.get(tu);
+		return TuvCodec.decode(tu);
+	}
+
+	@Override
+	protected Element readTuv(int index, String lang) {
+		int id = getId(lang);
+		byte[] bytes = id != -1 ? readUnit(index).tuvs.get(id) : null;
+		if (bytes == null) {
+			return null;
+		}
+		Element tuv = TuvCodec.decode(bytes);
+		tuv.setAttribute("xml:lang", table.get(id));
+		return tuv;
+	}
+
+	@Override
+	protected Map<String, Element> readTuvs(int index) {
+		Unit unit = readUnit(index);
+		Map<String, Element> result = new TreeMap<>();
+		Iterator<Integer> it = unit.tuvs.keySet().iterator();
+		while (it.hasNext()) {
+			int id = it.next();
+			Element tuv = TuvCodec.decode(unit.tuvs.get(id));
+			tuv.setAttribute("xml:lang", table.get(id));
+			result.put(table.get(id), tuv);
+		}
+		return result;
+	}
+
+	@Override
+	protected void writeTu(int index, Element tu) {
+		Unit unit = readUnit(index);
+		unit.tu = TuvCodec.encode(tu);
+		writeUnit(index, unit);
+	}
+
+	// all the tuvs of a change go into one new version of the unit
+	@Override
+	protected void writeTuvs(int index, Map<String, Element> tuvs) {
+		Unit unit = readUnit(index);
+		Iterator<String> it = tuvs.keySet().iterator();
+		while (it.hasNext()) {
+			String lang = it.next();
+			Element tuv = tuvs.get(lang);
+			if (tuv != null) {
+				unit.put(ids.get(registerLanguage(lang)), TmxUtils.textOnly(tuv.getChild("seg")),
+						TuvCodec.encode(tuv));
+			} else {
+				int id = getId(lang);
+				if (id != -1) {
+					unit.remove(id);
+				}
+			}
+		}
+		writeUnit(index, unit);
+	}
+
+	private void writeUnit(int index, Unit unit) {
+		arena.discard(units[index]);
+		units[index] = arena.append(unit.encode());
+		changes++;
+	}
+
+	@Override
+	protected void discard(int index) {
+		arena.discard(units[index]);
+	}
+
+	// a failed compaction only leaves the garbage in place
+	@Override
+	protected void compact() {
+		if (arena.getGarbage() >= arena.getSize() / 2) {
+			try {
+				rewrite(false);
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, e.getMessage(), e);
+			}
+		}
+	}
+
+	// copies the live units in file order to a new log; records are decoded again
+	// when languages were removed. The index and the log are only replaced once
+	// every unit was copied
+	private void rewrite(boolean decode) throws IOException {
+		File folder = log.getParentFile();
+		File file = File.createTempFile("units", ".log", folder);
+		MappedArena compacted = new MappedArena(file);
+		long[] addresses = Arrays.copyOf(units, units.length);
+		try {
+			int[] list = getOrder();
+			for (int i = 0; i < getOrderSize(); i++) {
+				int index = list[i];
+				if (units[index] != NONE) {
+					byte[] record = decode ? readUnit(index).encode() : arena.read(units[index]);
+					addresses[index] = compacted.append(record);
+				}
+			}
+		} catch (UncheckedIOException e) {
+			// the log file could not grow
+			compacted.release();
+			throw e.getCause();
+		}
+		arena.release();
+		arena = compacted;
+		units = addresses;
+		log = file;
+	}
+
+	@Override
+	protected void dropLanguage(String lang) throws IOException {
+		table.set(ids.remove(lang), null);
+		rewrite(true);
+	}
+
+	// records keep the language number, so only the table changes
+	@Override
+	protected void renameLanguage(String oldCode, String newCode) {
+		int id = ids.remove(oldCode);
+		ids.put(newCode, id);
+		table.set(id, newCode);
+	}
+
+	public synchronized JSONObject getLogStatistics() {
+		JSONObject result = getArenaStatistics();
+		result.put("file", log.getAbsolutePath());
+		return result;
+	}
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class MappedArena extends OffHeapArena {
+
+	// Arena whose chunks are consecutive regions of a memory-mapped file, so the
+	// records form an append-only log on disk and the operating system decides
+	// what stays in memory.
+
+	private static final Logger LOGGER = Logger.getLogger(MappedArena.class.getName());
+
+	private File file;
+	private FileChannel channel;
+	private long length;
+
+	MappedArena(File file) throws IOException {
+		this.file = file;
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	@Override
+	protected ByteBuffer allocate(int capacity) {
+		try {
+			ByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, length, capacity);
+			length += capacity;
+			return region;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	void release() {
+		super.release();
+		try {
+			channel.close();
+			// on Windows the file can't be removed while a region is still mapped
+			if (!Files.deleteIfExists(file.toPath())) {
+				file.deleteOnExit();
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, e.getMessage(), e);
+			file.deleteOnExit();
+		}
+	}
+}
@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.maxprograms.xml.Element;
+
+public class MemoryStore extends IndexedStore {
+
+	// Store for small and medium files that keeps everything in memory. Units
+	// and tuvs are kept in binary form in an off-heap arena, and the heap only
+	// holds arrays of arena addresses: one for the tu elements and one column
+	// per language for the tuvs. Changes append a new record; the old ones are
+	// reclaimed by compaction.
+
+	private Map<String, Column> columns;
+
+	private static class Column {
+
+		private long[] pures;
+		private long[] tuvs;
+
+		Column(int capacity) {
+			pures = new long[capacity];
+			tuvs = new long[capacity];
+			Arrays.fill(pures, NONE);
+			Arrays.fill(tuvs, NONE);
+		}
+
+		void ensure(int capacity) {
+			if (capacity > tuvs.length) {
+				int length = tuvs.length;
+				pures = Arrays.copyOf(pures, capacity);
+				tuvs = Arrays.copyOf(tuvs, capacity);
+				Arrays.fill(pures, length, capacity, NONE);
+				Arrays.fill(tuvs, length, capacity, NONE);
+			}
+		}
+
+		long getPure(int index) {
+			return index < pures.length ? pures[index] : NONE;
+		}
+
+		long getTuv(int index) {
+			return index < tuvs.length ? tuvs[index] : NONE;
+		}
+	}
+
+	public MemoryStore(File source) throws IOException {
+		super(source);
+		arena = new OffHeapArena();
+		columns = new HashMap<>();
+	}
+
+	public static boolean accepts(File file, long limit) throws IOException {
+		// compressed files may expand far beyond their size on disk
+		return !TmxStreams.isCompressed(file) && file.length() <= limit;
+	}
+
+	@Override
+	protected void appendUnit(UnitData unit, Element tu, long pos) {
+		List<String[]> list = unit.getTuvs();
+		Map<String, Integer> tuvs = new HashMap<>();
+		for (int i = 0; i < list.size(); i++) {
+			tuvs.put(registerLanguage(list.get(i)[0]), i);
+		}
+		int index = addUnit(arena.append(TuvCodec.encode(tu)), pos);
+		Iterator<String> it = tuvs.keySet().iterator();
+		while (it.hasNext()) {
+			String lang = it.next();
+			int i = tuvs.get(lang);
+			Column column = columns.get(lang);
+			column.ensure(units.length);
+			column.pures[index] = arena.append(list.get(i)[1].getBytes(StandardCharsets.UTF_8));
+			column.tuvs[index] = arena.append(unit.getEncoded().get(i));
+		}
+	}
+
+	@Override
+	protected long appendTu(Element tu) {
+		return arena.append(TuvCodec.encode(tu));
+	}
+
+	@Override
+	protected void languageAdded(String lang) {
+		columns.put(lang, new Column(units.length));
+	}
+
+	@Override
+	protected String readPure(int index, String lang) {
+		Column column = columns.get(getCode(lang));
+		if (column == null) {
+			return null;
+		}
+		long address = column.getPure(index);
+		return address == NONE ? null : new String(arena.read(address), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	protected Element readTu(int index) {
+		return TuvCodec.decode(arena.read(units[index]));
+	}
+
+	@Override
+	protected Element readTuv(int index, String lang) {
+		String code = getCode(lang);
+		Column column = columns.get(code);
+		if (column == null) {
+			return null;
+		}
+		long address = column.getTuv(index);
+		if (address == NONE) {
+			return null;
+		}
+		Element tuv = TuvCodec.decode(arena.read(address));
+		tuv.setAttribute("xml:lang", code);
+		return tuv;
+	}
+
+	@Override
+	protected Map<String, Element> readTuvs(int index) {
+		Map<String, Element> result = new TreeMap<>();
+		Iterator<String> it = languages.iterator();
+		while (it.hasNext()) {
+			String lang = it.next();
+			Element tuv = readTuv(index, lang);
+			if (tuv != null) {
+				result.put(lang, tuv);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	protected void writeTu(int index, Element tu) {
+		arena.discard(units[index]);
+		units[index] = arena.append(TuvCodec.encode(tu));
+		changes++;
+	}
+
+	@Override
+	protected void writeTuvs(int index, Map<String, Element> tuvs) {
+		Iterator<String> it = tuvs.keySet().iterator();
+		while (it.hasNext()) {
+			String lang = it.next();
+			Element tuv = tuvs.get(lang);
+			if (tuv != null) {
+				updateTuv(index, lang, tuv);
+			} else {
+				clearTuv(index, lang);
+			}
+		}
+	}
+
+	private void updateTuv(int index, String lang, Element tuv) {
+		Column column = columns.get(registerLanguage(lang));
+		column.ensure(units.length);
+		if (column.tuvs[index] != NONE) {
+			arena.discard(column.pures[index]);
+			arena.discard(column.tuvs[index]);
+		}
+		column.pures[index] = arena.append(TmxUtils.textOnly(tuv.getChild("seg")).getBytes(StandardCharsets.UTF_8));
+		column.tuvs[index] = arena.append(TuvCodec.encode(tuv));
+		changes++;
+	}
+
+	private void clearTuv(int index, String lang) {
+		Column column = columns.get(getCode(lang));
+		if (column != null && column.getTuv(index) != NONE) {
+			arena.discard(column.pures[index]);
+			arena.discard(column.tuvs[index]);
+			column.pures[index] = NONE;
+			column.tuvs[index] = NONE;
+			changes++;
+		}
+	}
+
+	@Override
+	protected void discard(int index) {
+		Iterator<Column> it = columns.values().iterator();
+		while (it.hasNext()) {
+			Column column = it.next();
+			if (column.getTuv(index) != NONE) {
+				arena.discard(column.pures[index]);
+				arena.discard(column.tuvs[index]);
+				column.pures[index] = NONE;
+				column.tuvs[index] = NONE;
+			}
+		}
+		arena.discard(units[index]);
+	}
+
+	// copies the records still in use to a new arena once most of the old one is
+	// garbage
+	@Override
+	protected void compact() {
+		if (arena.getGarbage() < arena.getSize() / 2) {
+			return;
+		}
+		OffHeapArena compacted = new OffHeapArena();
+		for (int i = 0; i < size; i++) {
+			if (units[i] != NONE) {
+				units[i] = compacted.append(arena.read(units[i]));
+			}
+		}
+		Iterator<Column> it = columns.values().iterator();
+		while (it.hasNext()) {
+			Column column = it.next();
+			for (int i = 0; i < column.tuvs.length; i++) {
+				if (column.tuvs[i] != NONE) {
+					column.pures[i] = compacted.append(arena.read(column.pures[i]));
+					column.tuvs[i] = compacted.append(arena.read(column.tuvs[i]));
+				}
+			}
+		}
+		arena.release();
+		arena = compacted;
+	}
+
+	@Override
+	protected void dropLanguage(String lang) {
+		Column column = columns.remove(lang);
+		for (int i = 0; i < column.tuvs.length; i++) {
+			if (column.tuvs[i] != NONE) {
+				arena.discard(column.pures[i]);
+				arena.discard(column.tuvs[i]);
+			}
+		}
+		compact();
+	}
+
+	@Override
+	protected void renameLanguage(String oldCode, String newCode) {
+		columns.put(newCode, columns.remove(oldCode));
+	}
+
+	@Override
+	public synchronized void close() {
+		super.close();
+		columns.clear();
+	}
+}
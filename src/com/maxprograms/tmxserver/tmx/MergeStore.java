@@ -13,8 +13,8 @@
 package com.maxprograms.tmxserver.tmx;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -29,11 +29,11 @@ import com.maxprograms.xml.Indenter;
 
 public class MergeStore implements StoreInterface {
 
-	private FileOutputStream out;
+	private OutputStream out;
 	private long tuCount;
 	private int indentation;
 
-	public MergeStore(FileOutputStream out) {
+	public MergeStore(OutputStream out) {
 		this.out = out;
 	}
 
@@ -86,7 +86,7 @@ public class MergeStore implements StoreInterface {
 	}
 
 	@Override
-	public String saveData(String id, String lang, String value) {
+	public String saveData(long id, String lang, String value) {
 		return null;
 	}
 
@@ -106,12 +106,12 @@ public class MergeStore implements StoreInterface {
 	}
 
 	@Override
-	public Element getTu(String id) {
+	public Element getTu(long id) {
 		return null;
 	}
 
 	@Override
-	public void delete(List<String> selected) {
+	public void delete(List<Long> selected) {
 		// do nothing
 	}
 
@@ -126,8 +126,8 @@ public class MergeStore implements StoreInterface {
 	}
 
 	@Override
-	public void insertUnit(String id) {
-		// do nothing
+	public long insertUnit(String tuid) {
+		return 0l;
 	}
 
 	@Override
@@ -176,17 +176,17 @@ public class MergeStore implements StoreInterface {
 	}
 
 	@Override
-	public void setTuAttributes(String id, List<String[]> attributes) {
+	public void setTuAttributes(long id, List<String[]> attributes) {
 		// do nothing
 	}
 
 	@Override
-	public void setTuProperties(String id, List<String[]> properties) {
+	public void setTuProperties(long id, List<String[]> properties) {
 		// do nothing
 	}
 
 	@Override
-	public void setTuNotes(String id, List<String> notes) {
+	public void setTuNotes(long id, List<String> notes) {
 		// do nothing
 	}
 
@@ -206,22 +206,22 @@ public class MergeStore implements StoreInterface {
 	}
 
 	@Override
-	public Element getTuv(String id, String lang) {
+	public Element getTuv(long id, String lang) {
 		return null;
 	}
 
 	@Override
-	public void setTuvAttributes(String id, String lang, List<String[]> attributes) {
+	public void setTuvAttributes(long id, String lang, List<String[]> attributes) {
 		// do nothing
 	}
 
 	@Override
-	public void setTuvProperties(String id, String lang, List<String[]> dataList) {
+	public void setTuvProperties(long id, String lang, List<String[]> dataList) {
 		// do nothing
 	}
 
 	@Override
-	public void setTuvNotes(String id, String lang, List<String> notes) {
+	public void setTuvNotes(long id, String lang, List<String> notes) {
 		// do nothing
 	}
 
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+class OffHeapArena {
+
+	// Append-only records in direct buffers, outside the Java heap. An address
+	// holds the chunk number in the high 32 bits and the offset in the low ones;
+	// each record starts with its length.
+
+	private static final int CHUNK_SIZE = 32 * 1024 * 1024;
+
+	private List<ByteBuffer> chunks;
+	private ByteBuffer current;
+	private long size;
+	private long garbage;
+
+	OffHeapArena() {
+		chunks = new ArrayList<>();
+	}
+
+	long append(byte[] bytes) {
+		int needed = 4 + bytes.length;
+		if (current == null || current.remaining() < needed) {
+			current = allocate(Math.max(CHUNK_SIZE, needed));
+			chunks.add(current);
+		}
+		long address = ((long) (chunks.size() - 1) << 32) | current.position();
+		current.putInt(bytes.length);
+		current.put(bytes);
+		size += needed;
+		return address;
+	}
+
+	protected ByteBuffer allocate(int capacity) {
+		return ByteBuffer.allocateDirect(capacity);
+	}
+
+	byte[] read(long address) {
+		ByteBuffer chunk = chunks.get((int) (address >>> 32));
+		int offset = (int) address;
+		byte[] bytes = new byte[chunk.getInt(offset)];
+		chunk.get(offset + 4, bytes);
+		return bytes;
+	}
+
+	// the record without copying it; valid until the arena is released
+	ByteBuffer view(long address) {
+		ByteBuffer chunk = chunks.get((int) (address >>> 32));
+		int offset = (int) address;
+		return chunk.slice(offset + 4, chunk.getInt(offset));
+	}
+
+	// the record is no longer referenced; its space is reclaimed on compaction
+	void discard(long address) {
+		ByteBuffer chunk = chunks.get((int) (address >>> 32));
+		garbage += 4 + chunk.getInt((int) address);
+	}
+
+	long getSize() {
+		return size;
+	}
+
+	long getGarbage() {
+		return garbage;
+	}
+
+	long getCapacity() {
+		long result = 0l;
+		for (int i = 0; i < chunks.size(); i++) {
+			result += chunks.get(i).capacity();
+		}
+		return result;
+	}
+
+	// direct buffers are freed when they are no longer reachable
+	void release() {
+		chunks.clear();
+		current = null;
+		size = 0l;
+		garbage = 0l;
+	}
+}
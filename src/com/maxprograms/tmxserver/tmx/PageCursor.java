@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+class PageCursor {
+
+	// last row of a page, where the next page of the same view starts
+
+	private String key;
+	private long position;
+
+	PageCursor(String key, long position) {
+		this.key = key;
+		this.position = position;
+	}
+
+	// sort text of the last row, null when not sorted by language or the row has
+	// no text in that language
+	String getKey() {
+		return key;
+	}
+
+	long getPosition() {
+		return position;
+	}
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class PatternCache {
+
+	private static final int MAX_PATTERNS = 64;
+
+	private static int flags;
+	private static volatile long timeout;
+
+	private static Map<String, Pattern> patterns = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+			return size() > MAX_PATTERNS;
+		}
+	};
+
+	private PatternCache() {
+		// empty for security
+	}
+
+	// timeout is in milliseconds for each evaluation; 0 means no limit
+	public static synchronized void setOptions(boolean caseInsensitive, boolean unicode, long millis) {
+		int newFlags = 0;
+		if (caseInsensitive) {
+			newFlags |= Pattern.CASE_INSENSITIVE;
+		}
+		if (unicode) {
+			newFlags |= Pattern.UNICODE_CASE | Pattern.UNICODE_CHARACTER_CLASS;
+		}
+		if (newFlags != flags) {
+			patterns.clear();
+			flags = newFlags;
+		}
+		timeout = millis;
+	}
+
+	public static synchronized Pattern compile(String expression) {
+		Pattern pattern = patterns.get(expression);
+		if (pattern == null) {
+			pattern = Pattern.compile(expression, flags);
+			patterns.put(expression, pattern);
+		}
+		return pattern;
+	}
+
+	public static boolean find(String expression, String value) throws TimeoutException {
+		try {
+			return matcher(expression, value).find();
+		} catch (Expired e) {
+			throw new TimeoutException(Messages.getString("PatternCache.0"));
+		}
+	}
+
+	// start and end of every non empty match, for highlighting
+	public static List<int[]> findAll(String expression, String value) throws TimeoutException {
+		List<int[]> result = new ArrayList<>();
+		try {
+			Matcher matcher = matcher(expression, value);
+			while (matcher.find()) {
+				if (matcher.end() > matcher.start()) {
+					result.add(new int[] { matcher.start(), matcher.end() });
+				}
+			}
+		} catch (Expired e) {
+			throw new TimeoutException(Messages.getString("PatternCache.0"));
+		}
+		return result;
+	}
+
+	private static Matcher matcher(String expression, String value) {
+		Pattern pattern = compile(expression);
+		long limit = timeout;
+		if (limit <= 0) {
+			return pattern.matcher(value);
+		}
+		return pattern.matcher(new Deadline(value, System.nanoTime() + limit * 1000000));
+	}
+
+	private static class Expired extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		Expired() {
+			super(null, null, false, false);
+		}
+	}
+
+	// the matcher reads every character through charAt, so checking the clock
+	// there stops runaway backtracking
+	private static class Deadline implements CharSequence {
+
+		private CharSequence text;
+		private long deadline;
+		private int reads;
+
+		Deadline(CharSequence text, long deadline) {
+			this.text = text;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if ((++reads & 0xFFF) == 0 && System.nanoTime() > deadline) {
+				throw new Expired();
+			}
+			return text.charAt(index);
+		}
+
+		@Override
+		public int length() {
+			return text.length();
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new Deadline(text.subSequence(start, end), deadline);
+		}
+
+		@Override
+		public String toString() {
+			return text.toString();
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+public class Progress {
+
+	// Rates are measured over the samples taken in the last WINDOW milliseconds,
+	// so a stalled job shows a falling rate instead of a lifetime average.
+	// The ETA uses bytes when the total size is known and units otherwise.
+
+	private static final long WINDOW = 10000l;
+	private static final long SAMPLE = 250l;
+
+	private long started;
+	private long finished;
+	private long bytes;
+	private long totalBytes;
+	private long units;
+	private long totalUnits;
+	private Deque<long[]> samples;
+	private Map<String, Long> phases;
+	private Map<String, Long> counts;
+	private volatile boolean cancelled;
+
+	public Progress() {
+		reset(0l, 0l);
+	}
+
+	public synchronized void start(long totalBytes, long totalUnits) {
+		reset(totalBytes, totalUnits);
+	}
+
+	private void reset(long totalBytes, long totalUnits) {
+		this.totalBytes = totalBytes;
+		this.totalUnits = totalUnits;
+		started = System.currentTimeMillis();
+		finished = 0l;
+		bytes = 0l;
+		units = 0l;
+		samples = new ArrayDeque<>();
+		phases = new LinkedHashMap<>();
+		counts = new LinkedHashMap<>();
+		cancelled = false;
+		samples.add(new long[] { started, 0l, 0l });
+	}
+
+	public synchronized void finish() {
+		finished = System.currentTimeMillis();
+		sample(finished);
+	}
+
+	public synchronized void addBytes(long count) {
+		bytes += count;
+		sample(System.currentTimeMillis());
+	}
+
+	public synchronized void addUnits(long count) {
+		units += count;
+		sample(System.currentTimeMillis());
+	}
+
+	// time is accumulated, so a phase can be measured in many small steps
+	public synchronized void addTime(String phase, long nanos) {
+		phases.merge(phase, nanos, Long::sum);
+	}
+
+	public synchronized void setTime(String phase, long millis) {
+		phases.put(phase, millis * 1000000);
+	}
+
+	// totals a job reports besides the units it processed
+	public synchronized void setCount(String name, long value) {
+		counts.put(name, value);
+	}
+
+	// asks the job to stop; the job checks the flag as it goes
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	private void sample(long now) {
+		long[] last = samples.peekLast();
+		if (now - last[0] < SAMPLE && finished == 0l) {
+			return;
+		}
+		samples.add(new long[] { now, units, bytes });
+		while (samples.size() > 2 && now - samples.peekFirst()[0] > WINDOW) {
+			samples.removeFirst();
+		}
+	}
+
+	public synchronized JSONObject toJSON() {
+		long now = finished != 0l ? finished : System.currentTimeMillis();
+		long[] first = samples.peekFirst();
+		if (finished != 0l) {
+			// average over the whole job once it is done
+			first = new long[] { started, 0l, 0l };
+		}
+		double seconds = (now - first[0]) / 1000.0;
+		double unitsPerSecond = seconds > 0 ? (units - first[1]) / seconds : 0;
+		double bytesPerSecond = seconds > 0 ? (bytes - first[2]) / seconds : 0;
+		JSONObject result = new JSONObject();
+		result.put("elapsed", now - started);
+		result.put("units", units);
+		result.put("totalUnits", totalUnits);
+		result.put("bytes", bytes);
+		result.put("totalBytes", totalBytes);
+		result.put("unitsPerSecond", Math.round(unitsPerSecond));
+		result.put("bytesPerSecond", Math.round(bytesPerSecond));
+		long eta = -1l;
+		if (finished != 0l) {
+			eta = 0l;
+		} else if (totalBytes > 0 && bytesPerSecond > 0) {
+			eta = Math.round(Math.max(totalBytes - bytes, 0) / bytesPerSecond * 1000);
+		} else if (totalUnits > 0 && unitsPerSecond > 0) {
+			eta = Math.round(Math.max(totalUnits - units, 0) / unitsPerSecond * 1000);
+		}
+		result.put("eta", eta);
+		JSONObject times = new JSONObject();
+		Iterator<String> it = phases.keySet().iterator();
+		while (it.hasNext()) {
+			String phase = it.next();
+			times.put(phase, phases.get(phase) / 1000000);
+		}
+		result.put("phases", times);
+		if (!counts.isEmpty()) {
+			result.put("counts", new JSONObject(counts));
+		}
+		return result;
+	}
+}
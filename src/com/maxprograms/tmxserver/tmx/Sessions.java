@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+
+public class Sessions {
+
+	// Each opened file keeps its database in the sessions folder, named after a
+	// hash of the file path. The database is reused when the file has the same
+	// size, modification time and fingerprint it had when the database was built.
+
+	public static final String VERSION = "7";
+
+	private static final int SAMPLE = 65536;
+	private static final String[] SUFFIXES = { "", "-wal", "-shm", "-journal" };
+
+	private Sessions() {
+		// do not instantiate this class
+	}
+
+	public static File getFolder() throws IOException {
+		File folder = new File(TmxUtils.getWorkFolder(), "sessions");
+		if (!folder.exists()) {
+			Files.createDirectories(folder.toPath());
+		}
+		return folder;
+	}
+
+	public static File getDatabase(File source) throws IOException {
+		String path = source.getCanonicalPath();
+		String name = HexFormat.of().formatHex(digest(path.getBytes(StandardCharsets.UTF_8)), 0, 16);
+		return new File(getFolder(), name + ".db");
+	}
+
+	// hash of the file size and its first and last 64 KB
+	public static String fingerprint(File source) throws IOException {
+		MessageDigest digest = getDigest();
+		try (RandomAccessFile file = new RandomAccessFile(source, "r")) {
+			long length = file.length();
+			digest.update(Long.toString(length).getBytes(StandardCharsets.UTF_8));
+			byte[] buffer = new byte[(int) Math.min(SAMPLE, length)];
+			file.readFully(buffer);
+			digest.update(buffer);
+			if (length > SAMPLE) {
+				file.seek(Math.max(SAMPLE, length - SAMPLE));
+				buffer = new byte[(int) (length - file.getFilePointer())];
+				file.readFully(buffer);
+				digest.update(buffer);
+			}
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	public static void delete(File database) throws IOException {
+		for (int i = 0; i < SUFFIXES.length; i++) {
+			Files.deleteIfExists(new File(database.getParentFile(), database.getName() + SUFFIXES[i]).toPath());
+		}
+	}
+
+	// removes the least recently used sessions until the folder fits in budget
+	// megabytes
+	public static void evict(long budget, File keep) throws IOException {
+		File[] list = getFolder().listFiles((dir, name) -> name.endsWith(".db"));
+		if (list == null) {
+			return;
+		}
+		Arrays.sort(list, Comparator.comparingLong(File::lastModified));
+		long total = 0l;
+		for (int i = 0; i < list.length; i++) {
+			total += size(list[i]);
+		}
+		long limit = budget * 1024 * 1024;
+		for (int i = 0; i < list.length && total > limit; i++) {
+			if (list[i].equals(keep)) {
+				continue;
+			}
+			total -= size(list[i]);
+			delete(list[i]);
+		}
+	}
+
+	private static long size(File database) {
+		long result = 0l;
+		for (int i = 0; i < SUFFIXES.length; i++) {
+			result += new File(database.getParentFile(), database.getName() + SUFFIXES[i]).length();
+		}
+		return result;
+	}
+
+	private static byte[] digest(byte[] bytes) throws IOException {
+		return getDigest().digest(bytes);
+	}
+
+	private static MessageDigest getDigest() throws IOException {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+}
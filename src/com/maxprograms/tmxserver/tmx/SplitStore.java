@@ -13,8 +13,8 @@
 package com.maxprograms.tmxserver.tmx;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,7 +34,7 @@ public class SplitStore implements StoreInterface {
 	protected static final Logger LOGGER = Logger.getLogger(SplitStore.class.getName());
 
 	private int fileCount;
-	private FileOutputStream out;
+	private OutputStream out;
 	private long tuCount;
 	private Element header;
 	private File file;
@@ -55,12 +55,10 @@ public class SplitStore implements StoreInterface {
 			writeString("</tmx>");
 			out.close();
 		}
-		String name = file.getAbsolutePath();
-		if (!name.toLowerCase().endsWith(".tmx")) {
-			name = name + ".tmx";
-		}
-		String newFile = name.substring(0, name.length() - 4) + "_" + fileCount + ".tmx";
-		out = new FileOutputStream(new File(newFile));
+		// parts of a compressed file are compressed too
+		String extension = file.getName().toLowerCase().endsWith(".gz") ? ".tmx.gz" : ".tmx";
+		String newFile = TmxStreams.baseName(file) + "_" + fileCount + extension;
+		out = TmxStreams.create(new File(newFile));
 		writeString("""
 				<?xml version="1.0" encoding="UTF-8"?>
 				<!DOCTYPE tmx PUBLIC "-//LISA OSCAR:1998//DTD for Translation Memory eXchange//EN" "tmx14.dtd">
@@ -132,7 +130,7 @@ public class SplitStore implements StoreInterface {
 	}
 
 	@Override
-	public String saveData(String id, String lang, String value) {
+	public String saveData(long id, String lang, String value) {
 		return null;
 	}
 
@@ -152,12 +150,12 @@ public class SplitStore implements StoreInterface {
 	}
 
 	@Override
-	public Element getTu(String id) {
+	public Element getTu(long id) {
 		return null;
 	}
 
 	@Override
-	public void delete(List<String> selected) {
+	public void delete(List<Long> selected) {
 		// do nothing
 	}
 
@@ -172,8 +170,8 @@ public class SplitStore implements StoreInterface {
 	}
 
 	@Override
-	public void insertUnit(String id) {
-		// do nothing
+	public long insertUnit(String tuid) {
+		return 0l;
 	}
 
 	@Override
@@ -222,17 +220,17 @@ public class SplitStore implements StoreInterface {
 	}
 
 	@Override
-	public void setTuAttributes(String id, List<String[]> attributes) {
+	public void setTuAttributes(long id, List<String[]> attributes) {
 		// do nothing
 	}
 
 	@Override
-	public void setTuProperties(String id, List<String[]> properties) {
+	public void setTuProperties(long id, List<String[]> properties) {
 		// do nothing
 	}
 
 	@Override
-	public void setTuNotes(String id, List<String> notes) {
+	public void setTuNotes(long id, List<String> notes) {
 		// do nothing
 	}
 
@@ -252,22 +250,22 @@ public class SplitStore implements StoreInterface {
 	}
 
 	@Override
-	public Element getTuv(String id, String lang) {
+	public Element getTuv(long id, String lang) {
 		return null;
 	}
 
 	@Override
-	public void setTuvAttributes(String id, String lang, List<String[]> attributes) {
+	public void setTuvAttributes(long id, String lang, List<String[]> attributes) {
 		// do nothing
 	}
 
 	@Override
-	public void setTuvProperties(String id, String lang, List<String[]> dataList) {
+	public void setTuvProperties(long id, String lang, List<String[]> dataList) {
 		// do nothing
 	}
 
 	@Override
-	public void setTuvNotes(String id, String lang, List<String> notes) {
+	public void setTuvNotes(long id, String lang, List<String> notes) {
 		// do nothing
 	}
 
@@ -16,6 +16,7 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -25,14 +26,22 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.Vector;
-import java.util.regex.Pattern;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeoutException;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -53,12 +62,26 @@ import com.maxprograms.xml.Element;
 import com.maxprograms.xml.Indenter;
 import com.maxprograms.xml.SAXBuilder;
 
-public class SqlStore implements StoreInterface {
+public class SqlStore implements EditorStore {
+
+    private static final int MAX_CURSORS = 4096;
+
+    // the characters String.isBlank() skips, as arguments for char()
+    private static final String BLANKS = "9, 10, 11, 12, 13, 28, 29, 30, 31, 32, 5760, 8192, 8193, 8194, 8195, 8196, "
+            + "8197, 8198, 8200, 8201, 8202, 8232, 8233, 8287, 12288";
+
+    private static final Set<String> PRAGMAS = Set.of("journal_mode", "synchronous", "page_size", "cache_size",
+            "temp_store", "mmap_size", "locking_mode");
 
     private Connection conn;
+    private StatementCache statements;
+    private volatile BlockingQueue<StatementCache> readers;
+    private int readConnections;
+    private volatile long commits;
     private Element header;
     private Set<String> languages;
-    private long time;
+    private Map<String, String> codes;
+    private long nextId;
     private long position;
     private long discarded;
     private long processed;
@@ -66,33 +89,163 @@ public class SqlStore implements StoreInterface {
     private long exported;
     private int indentation;
     private PreparedStatement insertTU;
+    private PreparedStatement insertTUV;
+    private int batchSize;
+    private int pending;
+    private long stored;
     private PreparedStatement selectTU;
     private PreparedStatement selectTUS;
+    private PreparedStatement selectTUV;
+    private PreparedStatement selectTUVS;
     private SAXBuilder builder;
     private boolean setChangeId;
+    private JSONObject editProfile;
+    private File source;
+    private File database;
+    private boolean restored;
+    private long sessionBudget;
+    private long phaseStart;
+    private volatile boolean loading;
+    private Progress loadProgress;
+    private Progress saveProgress;
+    private Progress exportProgress;
+    private Progress processProgress;
+    private TreeMap<Long, PageCursor> cursors;
+    private String cursorView;
+    private long cursorChanges;
+    private ElementCache<Long> tuCache;
+    private ElementCache<String> tuvCache;
+
+    @FunctionalInterface
+    private interface Query<T> {
+        T run(StatementCache cache) throws IOException, SQLException, SAXException, ParserConfigurationException;
+    }
 
-    public SqlStore(Set<String> langSet) throws IOException, SQLException {
-        File workFolder = TmxUtils.getWorkFolder();
-        File database = new File(workFolder, "sqlite");
-        if (database.exists()) {
-            TmxUtils.deleteFiles(database);
+    public SqlStore(File source) throws IOException, SQLException {
+        phaseStart = System.nanoTime();
+        loadProgress = new Progress();
+        loadProgress.start(source.length(), 0l);
+        saveProgress = new Progress();
+        exportProgress = new Progress();
+        processProgress = new Progress();
+        cursors = new TreeMap<>();
+        File legacy = new File(TmxUtils.getWorkFolder(), "sqlite");
+        if (legacy.exists()) {
+            TmxUtils.deleteFiles(legacy);
         }
-        Files.createDirectories(database.toPath());
-        File sqlite = new File(database, "tmxeditor.db");
-        Files.deleteIfExists(sqlite.toPath());
+        this.source = source;
+        database = Sessions.getDatabase(source);
 
         builder = new SAXBuilder();
-        languages = new TreeSet<>();
-        languages.addAll(langSet);
-        time = System.currentTimeMillis();
+        // read without locking by the threads that page through units
+        languages = new ConcurrentSkipListSet<>();
+        codes = new ConcurrentHashMap<>();
+        nextId = 1l;
         position = 0l;
         processed = 0l;
         discarded = 0l;
 
+        JSONObject preferences = TMXService.getPreferences();
+        setChangeId = preferences.getBoolean("changeId");
+        batchSize = preferences.getInt("batchSize");
+        editProfile = preferences.getJSONObject("editProfile");
+        sessionBudget = preferences.getLong("sessionBudget");
+        readConnections = preferences.getInt("readConnections");
+        tuCache = new ElementCache<>(preferences.getInt("elementCache"));
+        tuvCache = new ElementCache<>(preferences.getInt("elementCache"));
+        PatternCache.setOptions(preferences.getBoolean("regExpCaseInsensitive"),
+                preferences.getBoolean("regExpUnicode"), preferences.getLong("regExpTimeout"));
+
         DriverManager.registerDriver(new org.sqlite.JDBC());
-        conn = DriverManager.getConnection("jdbc:sqlite:" + sqlite.getAbsolutePath().replace('\\', '/'));
+        if (database.exists()) {
+            restored = restore();
+            if (restored) {
+                endPhase("restore");
+                loadProgress.finish();
+                return;
+            }
+            Sessions.delete(database);
+        }
+        conn = DriverManager.getConnection("jdbc:sqlite:" + database.getAbsolutePath().replace('\\', '/'));
+        // page_size only takes effect before the first table is created
+        applyProfile(preferences.getJSONObject("loadProfile"));
+        conn.setAutoCommit(false);
+        createFunctions(conn);
+        createTables();
+        endPhase("create");
+        loading = true;
+    }
+
+    private boolean restore() throws IOException, SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:" + database.getAbsolutePath().replace('\\', '/'));
+        try {
+            Map<String, String> meta = new HashMap<>();
+            try (Statement stmt = conn.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("SELECT name, value FROM session")) {
+                    while (rs.next()) {
+                        meta.put(rs.getString(1), rs.getString(2));
+                    }
+                }
+            }
+            if (!Sessions.VERSION.equals(meta.get("version")) || !"0".equals(meta.get("dirty"))
+                    || !source.getCanonicalPath().equals(meta.get("path"))
+                    || !Long.toString(source.length()).equals(meta.get("size"))
+                    || !Long.toString(source.lastModified()).equals(meta.get("modified"))
+                    || !Sessions.fingerprint(source).equals(meta.get("fingerprint"))) {
+                conn.close();
+                return false;
+            }
+            header = parseElement(meta.get("header"));
+            JSONArray array = new JSONArray(meta.get("languages"));
+            for (int i = 0; i < array.length(); i++) {
+                String lang = array.getString(i);
+                codes.put(lang.toLowerCase().replace("-", "_"), lang);
+                languages.add(lang);
+            }
+            try (Statement stmt = conn.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("SELECT MAX(id), MAX(position) FROM tu")) {
+                    while (rs.next()) {
+                        nextId = rs.getLong(1) + 1;
+                        position = rs.getLong(2) + 1;
+                    }
+                }
+            }
+        } catch (SQLException | SAXException | ParserConfigurationException e) {
+            // not a usable session
+            conn.close();
+            return false;
+        }
+        applyProfile(editProfile);
         conn.setAutoCommit(false);
-        Function.create(conn, "REGEXP", new Function() {
+        createFunctions(conn);
+        dropEmptyUnits();
+        prepareStatements();
+        openReaders();
+        database.setLastModified(System.currentTimeMillis());
+        return true;
+    }
+
+    // Units without tuvs, such as inserted units left empty, are not written to
+    // the file, so a restored session must not show them. The session still
+    // matches the file afterwards.
+    private void dropEmptyUnits() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            int count = stmt
+                    .executeUpdate("DELETE FROM tu WHERE NOT EXISTS (SELECT 1 FROM tuv WHERE tuv.id = tu.id)");
+            if (count > 0) {
+                stmt.execute("UPDATE session SET value = '0' WHERE name = 'dirty'");
+            }
+        }
+        conn.commit();
+    }
+
+    @Override
+    public boolean isRestored() {
+        return restored;
+    }
+
+    private static void createFunctions(Connection connection) throws SQLException {
+        Function.create(connection, "REGEXP", new Function() {
             @Override
             protected void xFunc() throws SQLException {
                 String expression = value_text(0);
@@ -100,103 +253,370 @@ public class SqlStore implements StoreInterface {
                 if (value == null)
                     value = "";
 
-                Pattern pattern = Pattern.compile(expression);
-                result(pattern.matcher(value).find() ? 1 : 0);
+                try {
+                    result(PatternCache.find(expression, value) ? 1 : 0);
+                } catch (TimeoutException e) {
+                    throw new SQLException(e.getMessage());
+                }
             }
         });
-        createTables();
-        setChangeId = TMXService.getPreferences().getBoolean("changeId");
+    }
+
+    private void applyProfile(JSONObject profile) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            Iterator<String> it = profile.keys();
+            while (it.hasNext()) {
+                String pragma = it.next();
+                if (!PRAGMAS.contains(pragma)) {
+                    continue;
+                }
+                stmt.execute("PRAGMA " + pragma + " = " + profile.get(pragma));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void loadCompleted() throws IOException, SQLException {
+        commit();
+        endPhase("parse");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS tu_position ON tu(position)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS tuv_lang ON tuv(lang, pure)");
+            stmt.execute("INSERT INTO tuv_fts(tuv_fts) VALUES ('rebuild')");
+        }
+        commitChanges();
+        endPhase("index");
+        updateSession();
+        createTriggers();
+        commitChanges();
+        Sessions.evict(sessionBudget, database);
+        // journal_mode can't be changed inside a transaction
+        conn.setAutoCommit(true);
+        applyProfile(editProfile);
+        conn.setAutoCommit(false);
+        openReaders();
+        endPhase("profile");
+        loading = false;
+        loadProgress.finish();
+    }
+
+    // Read-only connections for paging and exports. With the WAL journal they
+    // see the last committed state while bulk changes go through the writer
+    // connection, which only synchronized methods use.
+    private void openReaders() throws SQLException {
+        if (readConnections < 1) {
+            return;
+        }
+        BlockingQueue<StatementCache> pool = new ArrayBlockingQueue<>(readConnections);
+        for (int i = 0; i < readConnections; i++) {
+            Connection reader = DriverManager
+                    .getConnection("jdbc:sqlite:" + database.getAbsolutePath().replace('\\', '/'));
+            try (Statement stmt = reader.createStatement()) {
+                stmt.execute("PRAGMA query_only = ON");
+            }
+            createFunctions(reader);
+            pool.add(new StatementCache(reader));
+        }
+        synchronized (cursors) {
+            cursors.clear();
+            cursorView = null;
+        }
+        readers = pool;
+    }
+
+    // runs on a read-only connection when there are any, or on the writer
+    private <T> T read(Query<T> query) throws IOException, SQLException, SAXException, ParserConfigurationException {
+        BlockingQueue<StatementCache> pool = readers;
+        if (pool == null) {
+            synchronized (this) {
+                return query.run(statements);
+            }
+        }
+        StatementCache reader;
+        try {
+            reader = pool.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(e);
+        }
+        try {
+            return query.run(reader);
+        } finally {
+            pool.add(reader);
+        }
+    }
+
+    // readers see changes once committed; the count tells them when page
+    // boundaries are stale
+    private void commitChanges() throws SQLException {
+        conn.commit();
+        commits++;
+    }
+
+    private void updateSession() throws IOException, SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("REPLACE INTO session (name, value) VALUES (?, ?)")) {
+            String[][] values = { { "version", Sessions.VERSION }, { "path", source.getCanonicalPath() },
+                    { "size", Long.toString(source.length()) },
+                    { "modified", Long.toString(source.lastModified()) },
+                    { "fingerprint", Sessions.fingerprint(source) }, { "header", header.toString() },
+                    { "languages", new JSONArray(languages).toString() } };
+            for (int i = 0; i < values.length; i++) {
+                stmt.setString(1, values[i][0]);
+                stmt.setString(2, values[i][1]);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        // must run after the other values, as the triggers watch this one
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("UPDATE session SET value = '0' WHERE name = 'dirty'");
+        }
+    }
+
+    private void createTriggers() throws SQLException {
+        // any change to the units means the database no longer matches the file
+        String[] tables = { "tu", "tuv" };
+        String[] events = { "INSERT", "UPDATE", "DELETE" };
+        try (Statement stmt = conn.createStatement()) {
+            for (int i = 0; i < tables.length; i++) {
+                for (int j = 0; j < events.length; j++) {
+                    stmt.execute("CREATE TRIGGER IF NOT EXISTS " + tables[i] + "_" + events[j].toLowerCase()
+                            + " AFTER " + events[j] + " ON " + tables[i]
+                            + " WHEN (SELECT value FROM session WHERE name = 'dirty') = '0'"
+                            + " BEGIN UPDATE session SET value = '1' WHERE name = 'dirty'; END");
+                }
+            }
+            // keep the full-text index in step with every change to the pure text
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS tuv_fts_insert AFTER INSERT ON tuv"
+                    + " BEGIN INSERT INTO tuv_fts (rowid, pure) VALUES (new.rowid, new.pure); END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS tuv_fts_delete AFTER DELETE ON tuv"
+                    + " BEGIN INSERT INTO tuv_fts (tuv_fts, rowid, pure) VALUES ('delete', old.rowid, old.pure); END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS tuv_fts_update AFTER UPDATE OF pure ON tuv"
+                    + " BEGIN INSERT INTO tuv_fts (tuv_fts, rowid, pure) VALUES ('delete', old.rowid, old.pure);"
+                    + " INSERT INTO tuv_fts (rowid, pure) VALUES (new.rowid, new.pure); END");
+        }
+    }
+
+    private void markDirty() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("UPDATE session SET value = '1' WHERE name = 'dirty'");
+        }
+    }
+
+    private boolean isDirty() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT value FROM session WHERE name = 'dirty'")) {
+                while (rs.next()) {
+                    return !"0".equals(rs.getString(1));
+                }
+            }
+        }
+        return true;
+    }
+
+    // called after writing the file; if it replaced the source file the session
+    // is valid again
+    @Override
+    public synchronized void fileSaved(File file) throws IOException, SQLException {
+        if (file.getCanonicalPath().equals(source.getCanonicalPath())) {
+            commit();
+            updateSession();
+            commitChanges();
+        }
+    }
+
+    private void endPhase(String phase) {
+        long now = System.nanoTime();
+        loadProgress.setTime(phase, (now - phaseStart) / 1000000);
+        phaseStart = now;
+    }
+
+    // units stored so far, without counting the table while it is being loaded
+    @Override
+    public synchronized long getStored() {
+        return stored;
+    }
+
+    @Override
+    public Progress getLoadProgress() {
+        return loadProgress;
+    }
+
+    @Override
+    public Progress getSaveProgress() {
+        return saveProgress;
+    }
+
+    @Override
+    public Progress getExportProgress() {
+        return exportProgress;
+    }
+
+    @Override
+    public Progress getProcessProgress() {
+        return processProgress;
     }
 
     private void createTables() throws SQLException {
         String tu = """
                 CREATE TABLE tu (
-                    id TEXT NOT NULL,
+                    id INTEGER PRIMARY KEY,
                     tu TEXT NOT NULL,
                     position INTEGER NOT NULL,
-                    PRIMARY KEY(id)
+                    hash BLOB,
+                    changed TEXT NOT NULL
                     );""";
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("CREATE TABLE tuv (id TEXT NOT NULL, ");
-        Iterator<String> it = languages.iterator();
-        while (it.hasNext()) {
-            String lang = it.next().toLowerCase().replace("-", "_");
-            sb.append(lang);
-            sb.append("_pure TEXT, ");
-            sb.append(lang);
-            sb.append("_tuv TEXT, ");
-        }
-        sb.append("PRIMARY KEY(id));");
+        // one row per unit and language, so languages without text take no space;
+        // a rowid table, as the full-text index refers to its rows by rowid. The
+        // unit hash is cleared when a tuv changes and computed again from the
+        // segment hashes when needed
+        String tuv = """
+                CREATE TABLE tuv (
+                    id INTEGER NOT NULL,
+                    lang TEXT NOT NULL,
+                    pure TEXT NOT NULL,
+                    tuv BLOB NOT NULL,
+                    hash BLOB NOT NULL,
+                    PRIMARY KEY(id, lang)
+                    );""";
+        String fts = "CREATE VIRTUAL TABLE tuv_fts USING fts5(pure, content='tuv', tokenize='trigram')";
+        String session = """
+                CREATE TABLE session (
+                    name TEXT NOT NULL,
+                    value TEXT NOT NULL,
+                    PRIMARY KEY(name)
+                    );""";
         try (Statement create = conn.createStatement()) {
             create.execute(tu);
-            create.execute(sb.toString());
+            create.execute(tuv);
+            create.execute(fts);
+            create.execute(session);
+            create.execute("INSERT INTO session (name, value) VALUES ('dirty', '1')");
         }
-        insertTU = conn.prepareStatement("INSERT INTO tu (id, tu, position) VALUES (?, ?, ?)");
+        prepareStatements();
+        commitChanges();
+    }
+
+    private void prepareStatements() throws SQLException {
+        statements = new StatementCache(conn);
+        insertTU = conn.prepareStatement("INSERT INTO tu (id, tu, position, hash, changed) VALUES (?, ?, ?, ?, ?)");
         selectTU = conn.prepareStatement("SELECT tu FROM tu WHERE id = ?");
         selectTUS = conn.prepareStatement("SELECT id, position FROM tu WHERE position >= ? ORDER BY position");
-        conn.commit();
+        insertTUV = conn.prepareStatement("INSERT INTO tuv (id, lang, pure, tuv, hash) VALUES (?, ?, ?, ?, ?)");
+        selectTUV = conn.prepareStatement("SELECT tuv FROM tuv WHERE id = ? AND lang = ?");
+        selectTUVS = conn.prepareStatement("SELECT lang, tuv FROM tuv WHERE id = ?");
     }
 
     @Override
     public void storeTU(Element tu) throws IOException, SQLException {
-        String id = "" + time++;
-        List<Element> tuvs = tu.getChildren("tuv");
-        Iterator<Element> it = tuvs.iterator();
-        int tuvCount = 0;
-        while (it.hasNext()) {
-            Element tuv = it.next();
-            String lang = tuv.getAttributeValue("xml:lang", "");
-            if (lang.isEmpty()) {
-                lang = tuv.getAttributeValue("lang", "");
-                if (!lang.isEmpty()) {
-                    tuv.setAttribute("xml:lang", lang);
-                    tuv.removeAttribute("lang");
-                }
+        storeUnit(UnitData.prepare(tu));
+    }
+
+    @Override
+    public synchronized void storeUnit(UnitData unit) throws SQLException {
+        long start = System.nanoTime();
+        Map<String, Integer> tuvs = new HashMap<>();
+        List<String[]> list = unit.getTuvs();
+        for (int i = 0; i < list.size(); i++) {
+            tuvs.put(registerLanguage(list.get(i)[0]), i);
+        }
+        if (!tuvs.isEmpty()) {
+            long id = nextId++;
+            SortedMap<String, byte[]> hashes = new TreeMap<>();
+            Iterator<String> it = tuvs.keySet().iterator();
+            while (it.hasNext()) {
+                String lang = it.next();
+                int index = tuvs.get(lang);
+                byte[] hash = unit.getHashes().get(index);
+                insertTUV.setLong(1, id);
+                insertTUV.setString(2, lang);
+                insertTUV.setString(3, list.get(index)[1]);
+                insertTUV.setBytes(4, unit.getEncoded().get(index));
+                insertTUV.setBytes(5, hash);
+                insertTUV.addBatch();
+                hashes.put(lang, hash);
             }
-            if (lang.isEmpty()) {
-                // ignore this one
-                continue;
+            insertTU.setLong(1, id);
+            insertTU.setString(2, unit.getTu());
+            long pos = unit.getPosition();
+            if (pos == -1l) {
+                pos = position++;
+            } else if (pos >= position) {
+                position = pos + 1;
             }
-            if (tuvCount == 0) {
-                storeTUV(id, lang, tuv);
-            } else {
-                updateTUV(id, lang, tuv);
+            insertTU.setLong(3, pos);
+            insertTU.setBytes(4, ContentHash.unit(hashes));
+            insertTU.setString(5, unit.getChanged());
+            insertTU.addBatch();
+            pending++;
+            stored++;
+            if (pending >= batchSize) {
+                executeBatch();
             }
-            tuvCount++;
-        }
-        if (tuvCount > 0) {
-            tu.removeChild("tuv");
-            insertTU.setString(1, id);
-            insertTU.setString(2, tu.toString());
-            insertTU.setLong(3, position++);
-            insertTU.executeUpdate();
         } else {
             discarded++;
         }
         processed++;
+        if (loading) {
+            loadProgress.addUnits(1);
+            loadProgress.addTime("store", System.nanoTime() - start);
+        }
     }
 
-    private void storeTUV(String id, String lang, Element tuv) throws SQLException {
-        String lower = lang.toLowerCase().replace("-", "_");
-        try (PreparedStatement insertTUV = conn.prepareStatement("INSERT INTO tuv (id, " + lower + "_pure, " + lower
-                + "_tuv) VALUES (?, ?, ?)")) {
-            insertTUV.setString(1, id);
-            insertTUV.setString(2, TmxUtils.textOnly(tuv.getChild("seg")));
-            insertTUV.setString(3, tuv.toString());
-            insertTUV.executeUpdate();
+    private void executeBatch() throws SQLException {
+        if (pending > 0) {
+            insertTUV.executeBatch();
+            insertTU.executeBatch();
+            pending = 0;
         }
     }
 
-    private void updateTUV(String id, String lang, Element tuv) throws SQLException {
+    // languages are matched ignoring case and the separator used
+    private String registerLanguage(String lang) {
         String lower = lang.toLowerCase().replace("-", "_");
-        try (PreparedStatement updateTUV = conn.prepareStatement("UPDATE tuv SET " + lower + "_pure=?, " + lower
-                + "_tuv=? WHERE id=?")) {
-            updateTUV.setString(1, TmxUtils.textOnly(tuv.getChild("seg")));
-            updateTUV.setString(2, tuv.toString());
-            updateTUV.setString(3, id);
-            updateTUV.executeUpdate();
+        if (!codes.containsKey(lower)) {
+            codes.put(lower, lang);
+            languages.add(lang);
         }
+        return codes.get(lower);
+    }
+
+    private String getCode(String lang) {
+        String code = codes.get(lang.toLowerCase().replace("-", "_"));
+        return code != null ? code : lang;
+    }
+
+    // returns the hash of the new segment
+    private byte[] updateTUV(long id, String lang, Element tuv) throws SQLException {
+        tuvCache.update(tuvKey(id, lang), tuv);
+        String pure = TmxUtils.textOnly(tuv.getChild("seg"));
+        byte[] encoded = TuvCodec.encode(tuv);
+        byte[] hash = ContentHash.segment(tuv.getChild("seg"));
+        PreparedStatement updateTUV = statements
+                .get("UPDATE tuv SET pure = ?, tuv = ?, hash = ? WHERE id = ? AND lang = ?");
+        updateTUV.setString(1, pure);
+        updateTUV.setBytes(2, encoded);
+        updateTUV.setBytes(3, hash);
+        updateTUV.setLong(4, id);
+        updateTUV.setString(5, getCode(lang));
+        if (updateTUV.executeUpdate() == 0) {
+            insertTUV.setLong(1, id);
+            insertTUV.setString(2, getCode(lang));
+            insertTUV.setString(3, pure);
+            insertTUV.setBytes(4, encoded);
+            insertTUV.setBytes(5, hash);
+            insertTUV.executeUpdate();
+        }
+        unitChanged(id, UnitData.date(tuv));
+        return hash;
+    }
+
+    private void unitChanged(long id, String date) throws SQLException {
+        PreparedStatement update = statements.get("UPDATE tu SET hash = NULL, changed = max(changed, ?) WHERE id = ?");
+        update.setString(1, date);
+        update.setLong(2, id);
+        update.executeUpdate();
     }
 
     @Override
@@ -211,7 +631,8 @@ public class SqlStore implements StoreInterface {
 
     @Override
     public Set<String> getLanguages() {
-        return languages;
+        // a copy, as languages may still be added by the loader
+        return new TreeSet<>(languages);
     }
 
     @Override
@@ -219,146 +640,304 @@ public class SqlStore implements StoreInterface {
             boolean caseSensitive, boolean filterUntranslated, boolean regExp, Language filterSrcLanguage,
             Language sortLanguage, boolean ascending)
             throws IOException, SQLException, SAXException, ParserConfigurationException {
+        return read(cache -> selectUnits(cache, start, count, filterText, filterLanguage, caseSensitive,
+                filterUntranslated, regExp, filterSrcLanguage, sortLanguage, ascending));
+    }
+
+    // the units that contain the filter text, joined from tu
+    private StringBuilder filterFrom(String filterText, Language filterLanguage, boolean caseSensitive,
+            boolean regExp, List<Object> params) {
+        StringBuilder from = new StringBuilder(" FROM tu");
+        if (filterText != null && !filterText.isEmpty()) {
+            boolean indexed = !regExp && !loading && indexable(filterText);
+            if (indexed) {
+                // the full-text index drives the query; it returns candidate rows that
+                // are then checked against the exact text
+                from = new StringBuilder(" FROM tuv_fts m CROSS JOIN tuv f ON f.rowid = m.rowid AND f.lang = ?");
+                from.append(" AND m.pure LIKE ?");
+                params.add(getCode(filterLanguage.getCode()));
+                params.add("%" + filterText.replace('%', '_') + "%");
+            } else {
+                from.append(" JOIN tuv f ON f.id = tu.id AND f.lang = ?");
+                params.add(getCode(filterLanguage.getCode()));
+            }
+            if (regExp) {
+                from.append(" AND f.pure REGEXP ?");
+                params.add(filterText);
+            } else if (caseSensitive) {
+                from.append(" AND instr(f.pure, ?) > 0");
+                params.add(filterText);
+            } else {
+                from.append(" AND f.pure LIKE ? ESCAPE '\\'");
+                params.add("%" + filterText.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+            }
+            if (indexed) {
+                from.append(" CROSS JOIN tu ON tu.id = f.id");
+            }
+        }
+        return from;
+    }
 
+    // Pages are read with a keyset seek from the closest page boundary seen
+    // before, instead of skipping every row up to start. The boundaries of a view
+    // (filters and sort order) are kept until the view or the data changes.
+    private List<TUnit> selectUnits(StatementCache cache, long start, int count, String filterText,
+            Language filterLanguage, boolean caseSensitive, boolean filterUntranslated, boolean regExp,
+            Language filterSrcLanguage, Language sortLanguage, boolean ascending)
+            throws IOException, SQLException {
+
+        List<Object> params = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        StringBuilder from = filterFrom(filterText, filterLanguage, caseSensitive, regExp, params);
+        String sortKey = "NULL";
         String sortOption = "position";
         if (sortLanguage != null) {
-            String lower = sortLanguage.getCode().toLowerCase().replace("-", "_");
-            sortOption = lower + "_pure " + (ascending ? "ASC" : "DESC") + ", position";
+            from.append(" LEFT JOIN tuv s ON s.id = tu.id AND s.lang = ?");
+            params.add(getCode(sortLanguage.getCode()));
+            sortKey = "s.pure";
+            sortOption = "s.pure " + (ascending ? "ASC" : "DESC") + ", position";
         }
-        String limit = "";
-        if (filterUntranslated || caseSensitive) {
-            limit = " LIMIT -1 OFFSET " + start;
-        } else {
-            limit = " LIMIT " + count + " OFFSET " + start;
+        if (filterUntranslated) {
+            conditions.add("NOT EXISTS (SELECT 1 FROM tuv t WHERE t.id = tu.id AND t.lang <> ? AND t.pure <> '')");
+            params.add(getCode(filterSrcLanguage.getCode()));
         }
-        String where = "";
-        if (filterText != null && !filterText.isEmpty()) {
-            String lower = filterLanguage.getCode().toLowerCase().replace("-", "_");
-            if (regExp) {
-                where = " WHERE " + lower + "_pure REGEXP '" + filterText + "'";
-            } else {
-                where = " WHERE " + lower + "_pure LIKE '%" + filterText.replace("'", "''") + "%'";
+        // the query and its parameters identify the view
+        String view = from.toString() + conditions + sortOption + params;
+        long changes = cache == statements ? getChanges() : commits;
+        long offset = start;
+        synchronized (cursors) {
+            if (!view.equals(cursorView) || changes != cursorChanges) {
+                cursors.clear();
+                cursorView = view;
+                cursorChanges = changes;
+            }
+            Map.Entry<Long, PageCursor> anchor = cursors.floorEntry(start);
+            if (anchor != null) {
+                conditions.add(seek(anchor.getValue(), sortLanguage != null, ascending, params));
+                offset = start - anchor.getKey();
             }
         }
-        String sql = "SELECT tu.id, tu.position, tuv.* FROM tuv JOIN tu on tu.id = tuv.id" + where + " ORDER BY "
-                + sortOption
-                + limit;
-        processed = 0l;
+        StringBuilder sql = new StringBuilder("SELECT tu.id, position, " + sortKey);
+        sql.append(from);
+        for (int i = 0; i < conditions.size(); i++) {
+            sql.append(i == 0 ? " WHERE " : " AND ");
+            sql.append(conditions.get(i));
+        }
+        sql.append(" ORDER BY ");
+        sql.append(sortOption);
+        sql.append(" LIMIT " + count + " OFFSET " + offset);
+        long rows = 0l;
         List<TUnit> result = new Vector<>();
-        try (Statement stmt = conn.createStatement()) {
-            try (ResultSet rs = stmt.executeQuery(sql)) {
+        String lastKey = null;
+        long lastPosition = -1l;
+        PreparedStatement select = cache.get("SELECT lang, tuv FROM tuv WHERE id = ?");
+        try (PreparedStatement stmt = cache.getConnection().prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    if (filterUntranslated) {
-                        boolean translated = false;
-                        Iterator<String> it = languages.iterator();
-                        while (it.hasNext()) {
-                            String lang = it.next();
-                            if (!lang.equals(filterSrcLanguage.getCode())) {
-                                String lower = lang.toLowerCase().replace("-", "_");
-                                String value = rs.getString(lower + "_pure");
-                                if (value != null && !value.isEmpty()) {
-                                    translated = true;
-                                    break;
-                                }
-                            }
-                        }
-                        if (translated) {
-                            continue;
-                        }
-                    }
-                    if (caseSensitive) {
-                        String lower = filterLanguage.getCode().toLowerCase().replace("-", "_");
-                        String tuv = rs.getString(lower + "_tuv");
-                        if (tuv == null) {
-                            continue;
-                        }
-                        String text = TmxUtils.pureText(parseElement(tuv).getChild("seg"), true, filterText,
-                                caseSensitive, regExp, filterLanguage != null ? filterLanguage.getCode() : null);
-                        if (text.indexOf(TmxUtils.STYLE) == -1) {
-                            continue;
-                        }
-                    }
-                    String id = rs.getString(1);
+                    long id = rs.getLong(1);
+                    lastPosition = rs.getLong(2);
+                    lastKey = rs.getString(3);
+                    Map<String, Element> tuvs = getTuvs(select, id);
                     Map<String, String> map = new HashMap<>();
                     Iterator<String> it = languages.iterator();
                     while (it.hasNext()) {
                         String lang = it.next();
-                        String lower = lang.toLowerCase().replace("-", "_");
-                        String tuv = rs.getString(lower + "_tuv");
+                        Element tuv = tuvs.get(lang);
                         if (tuv != null) {
-                            tuv = TmxUtils.pureText(parseElement(tuv).getChild("seg"), true, filterText, caseSensitive,
-                                    regExp, filterLanguage != null ? filterLanguage.getCode() : null);
-                            map.put(lang, tuv);
+                            map.put(lang, TmxUtils.pureText(tuv.getChild("seg"), true, filterText, caseSensitive,
+                                    regExp, filterLanguage != null ? filterLanguage.getCode() : null));
                         } else {
                             map.put(lang, "");
                         }
                     }
-                    result.add(new TUnit(1 + processed + start, id, map));
-                    processed++;
-                    if (processed >= count) {
-                        break;
+                    result.add(new TUnit(1 + rows + start, Long.toString(id), map));
+                    rows++;
+                }
+            }
+        }
+        if (lastPosition != -1l) {
+            synchronized (cursors) {
+                if (view.equals(cursorView) && changes == cursorChanges) {
+                    if (cursors.size() >= MAX_CURSORS) {
+                        cursors.pollFirstEntry();
                     }
+                    long next = start + rows;
+                    cursors.put(next, new PageCursor(lastKey, lastPosition));
                 }
             }
         }
         return result;
     }
 
-    private String getPure(String id, String lang) throws SQLException {
+    // the trigram index can only narrow a search that has a run of at least three
+    // characters without wildcards
+    private static boolean indexable(String text) {
+        int run = 0;
+        int i = 0;
+        while (i < text.length()) {
+            int c = text.codePointAt(i);
+            run = c == '%' || c == '_' ? 0 : run + 1;
+            if (run >= 3) {
+                return true;
+            }
+            i += Character.charCount(c);
+        }
+        return false;
+    }
+
+    public JSONObject getCacheStatistics() {
+        JSONObject result = new JSONObject();
+        result.put("tu", tuCache.toJSON());
+        result.put("tuv", tuvCache.toJSON());
+        return result;
+    }
+
+    // rows that follow the cursor in (sort key, position) order; NULL keys sort
+    // first in ascending order and last in descending order
+    private static String seek(PageCursor cursor, boolean sorted, boolean ascending, List<Object> params) {
+        if (!sorted) {
+            params.add(cursor.getPosition());
+            return "position > ?";
+        }
+        String key = cursor.getKey();
+        if (key == null) {
+            params.add(cursor.getPosition());
+            return ascending ? "((s.pure IS NULL AND position > ?) OR s.pure IS NOT NULL)"
+                    : "(s.pure IS NULL AND position > ?)";
+        }
+        params.add(key);
+        params.add(key);
+        params.add(cursor.getPosition());
+        return ascending ? "(s.pure > ? OR (s.pure = ? AND position > ?))"
+                : "(s.pure < ? OR (s.pure = ? AND position > ?) OR s.pure IS NULL)";
+    }
+
+    // rows changed through this connection, used to discard page boundaries
+    private long getChanges() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT total_changes()")) {
+                return rs.next() ? rs.getLong(1) : 0l;
+            }
+        }
+    }
+
+    private String getPure(PreparedStatement selectPure, long id, String lang) throws SQLException {
         String result = "";
-        String lower = lang.toLowerCase().replace("-", "_");
-        try (PreparedStatement selectPure = conn.prepareStatement("SELECT " + lower + "_pure FROM tuv WHERE id = ?")) {
-            selectPure.setString(1, id);
-            try (ResultSet rs = selectPure.executeQuery()) {
-                while (rs.next()) {
-                    result = rs.getString(1);
-                }
+        selectPure.setLong(1, id);
+        selectPure.setString(2, getCode(lang));
+        try (ResultSet rs = selectPure.executeQuery()) {
+            while (rs.next()) {
+                result = rs.getString(1);
             }
         }
         return result;
     }
 
     @Override
-    public Element getTuv(String id, String lang)
+    public synchronized Element getTuv(long id, String lang)
             throws SQLException, SAXException, IOException, ParserConfigurationException {
-        String lower = lang.toLowerCase().replace("-", "_");
+        String key = tuvKey(id, lang);
+        Element result = tuvCache.get(key);
+        if (result != null) {
+            result.setAttribute("xml:lang", lang);
+            return result;
+        }
+        result = readTuv(id, lang);
+        if (result != null) {
+            tuvCache.put(key, result);
+        }
+        return result;
+    }
+
+    private String tuvKey(long id, String lang) {
+        return id + "/" + getCode(lang);
+    }
+
+    // bulk operations read without the cache, so a full pass doesn't evict the
+    // units being edited
+    private Element readTuv(long id, String lang) throws SQLException {
+        return readTuv(selectTUV, id, lang);
+    }
+
+    private Element readTuv(PreparedStatement select, long id, String lang) throws SQLException {
         Element result = null;
-        try (PreparedStatement selectTUV = conn.prepareStatement("SELECT " + lower + "_tuv FROM tuv WHERE id = ?")) {
-            selectTUV.setString(1, id);
-            try (ResultSet rs = selectTUV.executeQuery()) {
-                while (rs.next()) {
-                    String tuv = rs.getString(1);
-                    if (tuv != null && !tuv.isBlank()) {
-                        result = parseElement(tuv);
-                        result.setAttribute("xml:lang", lang);
-                    }
-                }
+        select.setLong(1, id);
+        select.setString(2, getCode(lang));
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                result = TuvCodec.decode(rs.getBytes(1));
+                result.setAttribute("xml:lang", lang);
+            }
+        }
+        return result;
+    }
+
+    // all tuvs of a unit, by language
+    private Map<String, Element> getTuvs(long id) throws SQLException {
+        return getTuvs(selectTUVS, id);
+    }
+
+    private Map<String, Element> getTuvs(PreparedStatement select, long id) throws SQLException {
+        Map<String, Element> result = new TreeMap<>();
+        select.setLong(1, id);
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                String lang = rs.getString(1);
+                Element tuv = TuvCodec.decode(rs.getBytes(2));
+                tuv.setAttribute("xml:lang", lang);
+                result.put(lang, tuv);
             }
         }
         return result;
     }
 
-    private Element parseElement(String tuv) throws SAXException, IOException, ParserConfigurationException {
-        Document doc = new SAXBuilder().build(new ByteArrayInputStream(tuv.getBytes(StandardCharsets.UTF_8)));
+    private Element parseElement(String xml) throws SAXException, IOException, ParserConfigurationException {
+        Document doc = new SAXBuilder().build(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
         return doc.getRootElement();
     }
 
     @Override
-    public void close() throws IOException, SQLException {
+    public synchronized void close() throws IOException, SQLException {
+        BlockingQueue<StatementCache> pool = readers;
+        if (pool != null) {
+            readers = null;
+            StatementCache reader = pool.poll();
+            while (reader != null) {
+                reader.close();
+                reader = pool.poll();
+            }
+        }
+        insertTUV.close();
         insertTU.close();
         selectTU.close();
         selectTUS.close();
-        conn.close();
+        selectTUV.close();
+        selectTUVS.close();
+        boolean dirty = isDirty();
+        statements.close();
+        if (dirty) {
+            Sessions.delete(database);
+        }
+        Sessions.evict(sessionBudget, null);
     }
 
     @Override
     public long getCount() throws SQLException {
+        try {
+            return read(SqlStore::countUnits);
+        } catch (IOException | SAXException | ParserConfigurationException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    private static long countUnits(StatementCache cache) throws SQLException {
         long result = 0l;
-        try (Statement count = conn.createStatement()) {
-            try (ResultSet rs = count.executeQuery("SELECT COUNT(*) FROM tu")) {
-                while (rs.next()) {
-                    result = rs.getLong(1);
-                }
+        try (ResultSet rs = cache.get("SELECT COUNT(*) FROM tu").executeQuery()) {
+            while (rs.next()) {
+                result = rs.getLong(1);
             }
         }
         return result;
@@ -370,7 +949,7 @@ public class SqlStore implements StoreInterface {
     }
 
     @Override
-    public String saveData(String id, String lang, String value)
+    public synchronized String saveData(long id, String lang, String value)
             throws IOException, SAXException, ParserConfigurationException, SQLException {
         Element tuv = getTuv(id, lang);
         String text = value;
@@ -396,7 +975,7 @@ public class SqlStore implements StoreInterface {
                 tuv.setAttribute("changedate", TmxUtils.tmxDate());
             }
             updateTUV(id, lang, tuv);
-            conn.commit();
+            commitChanges();
         } else {
             tuv = new Element("tuv");
             tuv.setAttribute("xml:lang", lang);
@@ -406,15 +985,16 @@ public class SqlStore implements StoreInterface {
             seg.setText(text);
             tuv.addContent(seg);
             updateTUV(id, lang, tuv);
-            conn.commit();
+            commitChanges();
         }
         return TmxUtils.pureText(tuv.getChild("seg"), true, null, false, false, lang);
     }
 
     @Override
-    public void writeFile(File file) throws IOException, SAXException, ParserConfigurationException, SQLException {
+    public synchronized void writeFile(File file) throws IOException, SAXException, ParserConfigurationException, SQLException {
         saved = 0l;
-        try (FileOutputStream out = new FileOutputStream(file)) {
+        saveProgress.start(0l, getCount());
+        try (OutputStream out = TmxStreams.create(file, saveProgress)) {
             writeString(out, """
                     <?xml version="1.0" encoding="UTF-8"?>
                     <!DOCTYPE tmx PUBLIC "-//LISA OSCAR:1998//DTD for Translation Memory eXchange//EN" "tmx14.dtd">
@@ -429,32 +1009,35 @@ public class SqlStore implements StoreInterface {
             selectTUS.setLong(1, 0l);
             try (ResultSet rs = selectTUS.executeQuery()) {
                 while (rs.next()) {
-                    String id = rs.getString(1);
-                    Element tu = getTu(id);
-                    Iterator<String> langIt = languages.iterator();
-                    int count = 0;
-                    while (langIt.hasNext()) {
-                        String lang = langIt.next();
-                        Element tuv = getTuv(id, lang);
-                        if (tuv != null) {
-                            tu.addContent(tuv);
-                            count++;
-                        }
+                    long start = System.nanoTime();
+                    long id = rs.getLong(1);
+                    Element tu = readTu(id);
+                    Map<String, Element> tuvs = getTuvs(id);
+                    Iterator<Element> tuvIt = tuvs.values().iterator();
+                    while (tuvIt.hasNext()) {
+                        tu.addContent(tuvIt.next());
                     }
-                    if (count == 0) {
+                    if (tuvs.isEmpty()) {
+                        saveProgress.addUnits(1);
                         continue;
                     }
+                    long read = System.nanoTime();
+                    saveProgress.addTime("read", read - start);
                     Indenter.indent(tu, 3, indentation);
                     writeString(out, TextUtils.padding(2, indentation) + tu.toString() + "\n");
                     saved++;
+                    saveProgress.addTime("write", System.nanoTime() - read);
+                    saveProgress.addUnits(1);
                 }
             }
             writeString(out, TextUtils.padding(1, indentation) + "</body>\n");
             writeString(out, "</tmx>");
+        } finally {
+            saveProgress.finish();
         }
     }
 
-    private void writeString(FileOutputStream out, String string) throws IOException {
+    private void writeString(OutputStream out, String string) throws IOException {
         out.write(string.getBytes(StandardCharsets.UTF_8));
     }
 
@@ -464,14 +1047,30 @@ public class SqlStore implements StoreInterface {
     }
 
     @Override
-    public void commit() throws IOException, SQLException {
-        conn.commit();
+    public synchronized void commit() throws IOException, SQLException {
+        long start = System.nanoTime();
+        executeBatch();
+        commitChanges();
+        if (loading) {
+            loadProgress.addTime("commit", System.nanoTime() - start);
+        }
     }
 
     @Override
-    public Element getTu(String id) throws IOException, SQLException, SAXException, ParserConfigurationException {
+    public synchronized Element getTu(long id) throws IOException, SQLException, SAXException, ParserConfigurationException {
+        Element result = tuCache.get(id);
+        if (result == null) {
+            result = readTu(id);
+            if (result != null) {
+                tuCache.put(id, result);
+            }
+        }
+        return result;
+    }
+
+    private Element readTu(long id) throws IOException, SQLException, SAXException, ParserConfigurationException {
         Element result = null;
-        selectTU.setString(1, id);
+        selectTU.setLong(1, id);
         try (ResultSet rs = selectTU.executeQuery()) {
             while (rs.next()) {
                 String tu = rs.getString(1);
@@ -482,34 +1081,77 @@ public class SqlStore implements StoreInterface {
     }
 
     @Override
-    public void delete(List<String> selected) throws SQLException {
-        Iterator<String> it = selected.iterator();
+    public synchronized void delete(List<Long> selected) throws SQLException {
+        long start = System.nanoTime();
+        clearListed();
+        PreparedStatement insert = statements.get("INSERT INTO listed (id) VALUES (?)");
+        Iterator<Long> it = selected.iterator();
         while (it.hasNext()) {
-            delete(it.next());
+            insert.setLong(1, it.next());
+            insert.addBatch();
         }
+        insert.executeBatch();
+        processProgress.start(0l, selected.size());
+        processProgress.addTime("select", System.nanoTime() - start);
+        deleteListed(selected.size());
+        commitChanges();
+        processProgress.finish();
     }
 
-    private void delete(String id) throws SQLException {
-        try (PreparedStatement deleteTU = conn.prepareStatement("DELETE FROM tu WHERE id = ?")) {
-            deleteTU.setString(1, id);
-            deleteTU.executeUpdate();
+    // Deletes every unit the filter shows in one transaction, without reading
+    // them back; the filter is the same used for paging.
+    @Override
+    public synchronized long deleteFiltered(String filterText, Language filterLanguage, boolean caseSensitive,
+            boolean filterUntranslated, boolean regExp, Language filterSrcLanguage) throws IOException, SQLException {
+        EditorStore.checkDeleteFilter(filterText, filterLanguage, filterUntranslated, filterSrcLanguage);
+        long start = System.nanoTime();
+        clearListed();
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("INSERT INTO listed (id) SELECT tu.id");
+        sql.append(filterFrom(filterText, filterLanguage, caseSensitive, regExp, params));
+        if (filterUntranslated) {
+            sql.append(" WHERE NOT EXISTS (SELECT 1 FROM tuv t WHERE t.id = tu.id AND t.lang <> ? AND t.pure <> '')");
+            params.add(getCode(filterSrcLanguage.getCode()));
         }
-        try (PreparedStatement deleteTUV = conn.prepareStatement("DELETE FROM tuv WHERE id = ?")) {
-            deleteTUV.setString(1, id);
-            deleteTUV.executeUpdate();
+        sql.append(" ORDER BY tu.id");
+        long count = 0l;
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            count = stmt.executeUpdate();
         }
-        conn.commit();
+        processProgress.start(0l, count);
+        processProgress.addTime("select", System.nanoTime() - start);
+        long result = deleteListed(count);
+        commitChanges();
+        processProgress.finish();
+        return result;
+    }
+
+    private void delete(long id) throws SQLException {
+        tuCache.remove(id);
+        Iterator<String> it = languages.iterator();
+        while (it.hasNext()) {
+            tuvCache.remove(tuvKey(id, it.next()));
+        }
+        PreparedStatement deleteTU = statements.get("DELETE FROM tu WHERE id = ?");
+        deleteTU.setLong(1, id);
+        deleteTU.executeUpdate();
+        PreparedStatement deleteTUV = statements.get("DELETE FROM tuv WHERE id = ?");
+        deleteTUV.setLong(1, id);
+        deleteTUV.executeUpdate();
     }
 
     @Override
-    public void replaceText(String search, String replace, Language language, boolean regExp)
+    public synchronized void replaceText(String search, String replace, Language language, boolean regExp)
             throws SAXException, IOException, ParserConfigurationException, SQLException {
         processed = 0l;
         selectTUS.setLong(1, 0l);
         try (ResultSet rs = selectTUS.executeQuery()) {
             while (rs.next()) {
-                String id = rs.getString(1);
-                Element tuv = getTuv(id, language.getCode());
+                long id = rs.getLong(1);
+                Element tuv = readTuv(id, language.getCode());
                 if (tuv != null) {
                     Element seg = tuv.getChild("seg");
                     String segText = TmxUtils.textOnly(seg);
@@ -536,7 +1178,7 @@ public class SqlStore implements StoreInterface {
                 processed++;
             }
         }
-        conn.commit();
+        commitChanges();
     }
 
     @Override
@@ -545,71 +1187,104 @@ public class SqlStore implements StoreInterface {
     }
 
     @Override
-    public void insertUnit(String id) throws IOException, SQLException {
+    public synchronized long insertUnit(String tuid) throws IOException, SQLException {
+        long id = nextId++;
         Element tu = new Element("tu");
-        tu.setAttribute("tuid", id);
+        tu.setAttribute("tuid", tuid);
         tu.setAttribute("creationdate", TmxUtils.tmxDate());
         tu.setAttribute("creationid", System.getProperty("user.name"));
         tu.setAttribute("creationtool", Constants.APPNAME);
         tu.setAttribute("creationtoolversion", Constants.VERSION);
-        insertTU.setString(1, id);
+        insertTU.setLong(1, id);
         insertTU.setString(2, tu.toString());
         insertTU.setLong(3, position++);
+        insertTU.setNull(4, Types.BLOB);
+        insertTU.setString(5, UnitData.date(tu));
         insertTU.executeUpdate();
-        String sql = "INSERT INTO tuv (id) VALUES (?);";
-        try (PreparedStatement insertTUV = conn.prepareStatement(sql)) {
-            insertTUV.setString(1, id);
-            insertTUV.executeUpdate();
-        }
-        conn.commit();
+        commitChanges();
+        return id;
     }
 
+    // Units with text only in the source language are found and deleted by
+    // SQLite in one transaction; text that String.isBlank() would reject,
+    // Unicode spaces included, counts as untranslated.
     @Override
-    public long removeUntranslated(Language language)
-            throws IOException, SQLException, SAXException, ParserConfigurationException {
-        long result = 0l;
-        String srcLang = language.getCode();
-        String lower = srcLang.toLowerCase().replace("-", "_");
-        String sql = "SELECT * FROM tuv WHERE " + lower + "_pure NOT NULL";
+    public synchronized long removeUntranslated(Language language) throws SQLException {
+        long start = System.nanoTime();
+        long count = listUntranslated(getCode(language.getCode()));
+        processProgress.start(0l, count);
+        processProgress.addTime("select", System.nanoTime() - start);
+        long result = deleteListed(count);
+        commitChanges();
+        processProgress.finish();
+        return result;
+    }
+
+    private long listUntranslated(String srcLang) throws SQLException {
+        clearListed();
+        PreparedStatement select = statements.get("INSERT INTO listed (id) SELECT s.id FROM tuv s WHERE s.lang = ?"
+                + " AND NOT EXISTS (SELECT 1 FROM tuv t WHERE t.id = s.id AND t.lang <> ?"
+                + " AND trim(t.pure, char(" + BLANKS + ")) <> '') ORDER BY s.id");
+        select.setString(1, srcLang);
+        select.setString(2, srcLang);
+        return select.executeUpdate();
+    }
+
+    // units to delete in bulk, numbered so they can be removed in steps
+    private void clearListed() throws SQLException {
         try (Statement stmt = conn.createStatement()) {
-            try (ResultSet rs = stmt.executeQuery(sql)) {
-                while (rs.next()) {
-                    String id = rs.getString("id");
-                    boolean translated = false;
-                    Iterator<String> it = languages.iterator();
-                    while (it.hasNext()) {
-                        String lang = it.next();
-                        if (lang.equals(srcLang)) {
-                            continue;
-                        }
-                        lower = lang.toLowerCase().replace("-", "_");
-                        String value = rs.getString(lower + "_pure");
-                        if (value != null && !value.isBlank()) {
-                            translated = true;
-                            break;
-                        }
-                    }
-                    if (!translated) {
-                        delete(id);
-                        result++;
-                    }
-                }
+            stmt.execute("CREATE TEMP TABLE IF NOT EXISTS listed (n INTEGER PRIMARY KEY, id INTEGER NOT NULL)");
+            stmt.execute("DELETE FROM listed");
+        }
+    }
+
+    // deletes the units in the listed table without committing; processed and
+    // the process progress count the units removed
+    private long deleteListed(long count) throws SQLException {
+        processed = 0l;
+        if (count == 0l) {
+            return 0l;
+        }
+        tuCache.clear();
+        tuvCache.clear();
+        long start = System.nanoTime();
+        PreparedStatement deleteTUV = statements
+                .get("DELETE FROM tuv WHERE id IN (SELECT id FROM listed WHERE n > ? AND n <= ?)");
+        PreparedStatement deleteTU = statements
+                .get("DELETE FROM tu WHERE id IN (SELECT id FROM listed WHERE n > ? AND n <= ?)");
+        long first = 0l;
+        long last = 0l;
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT MIN(n) - 1, MAX(n) FROM listed")) {
+            if (rs.next()) {
+                first = rs.getLong(1);
+                last = rs.getLong(2);
             }
         }
-        conn.commit();
-        return result;
+        for (long n = first; n < last; n += batchSize) {
+            deleteTUV.setLong(1, n);
+            deleteTUV.setLong(2, n + batchSize);
+            deleteTUV.executeUpdate();
+            deleteTU.setLong(1, n);
+            deleteTU.setLong(2, n + batchSize);
+            long removed = deleteTU.executeUpdate();
+            processed += removed;
+            processProgress.addUnits(removed);
+        }
+        processProgress.addTime("delete", System.nanoTime() - start);
+        return processed;
     }
 
     @Override
-    public void removeSameAsSource(Language language)
+    public synchronized void removeSameAsSource(Language language)
             throws IOException, SAXException, ParserConfigurationException, SQLException {
         String srclang = language.getCode();
         processed = 0l;
         selectTUS.setLong(1, 0l);
         try (ResultSet rs = selectTUS.executeQuery()) {
             while (rs.next()) {
-                String id = rs.getString(1);
-                Element srcTuv = getTuv(id, srclang);
+                long id = rs.getLong(1);
+                Element srcTuv = readTuv(id, srclang);
                 if (srcTuv != null) {
                     Element src = srcTuv.getChild("seg");
                     Iterator<String> langIt = languages.iterator();
@@ -617,7 +1292,7 @@ public class SqlStore implements StoreInterface {
                     while (langIt.hasNext()) {
                         String lang = langIt.next();
                         if (!lang.equals(srclang)) {
-                            Element tuv = getTuv(id, lang);
+                            Element tuv = readTuv(id, lang);
                             if (tuv != null) {
                                 Element tgt = tuv.getChild("seg");
                                 if (src.equals(tgt)) {
@@ -634,84 +1309,106 @@ public class SqlStore implements StoreInterface {
                 }
             }
         }
-        conn.commit();
+        commitChanges();
     }
 
     @Override
-    public void addLanguage(Language language) throws IOException, SQLException {
+    public synchronized void addLanguage(Language language) throws IOException, SQLException {
         String lang = language.getCode();
-        if (!languages.contains(lang)) {
-            String lower = lang.toLowerCase().replace("-", "_");
-            StringBuilder sb = new StringBuilder();
-            sb.append("ALTER TABLE tuv ADD COLUMN ");
-            sb.append(lower);
-            sb.append("_pure TEXT;");
-            StringBuilder sb2 = new StringBuilder();
-            sb2.append("ALTER TABLE tuv ADD COLUMN ");
-            sb2.append(lower);
-            sb2.append("_tuv TEXT;");
-            try (Statement addLang = conn.createStatement()) {
-                addLang.execute(sb.toString());
-                addLang.execute(sb2.toString());
-            }
-            conn.commit();
-            languages.add(lang);
+        if (!codes.containsKey(lang.toLowerCase().replace("-", "_"))) {
+            // the list of languages is kept in the session
+            markDirty();
+            commitChanges();
+            registerLanguage(lang);
         }
     }
 
     @Override
-    public void removeLanguage(Language language) throws IOException, SQLException {
+    public synchronized void removeLanguage(Language language) throws IOException, SQLException {
         String lang = language.getCode();
         if (languages.contains(lang)) {
-            String lower = lang.toLowerCase().replace("-", "_");
-            StringBuilder sb = new StringBuilder();
-            sb.append("ALTER TABLE tuv DROP COLUMN ");
-            sb.append(lower);
-            sb.append("_pure;");
-            StringBuilder sb2 = new StringBuilder();
-            sb2.append("ALTER TABLE tuv DROP COLUMN ");
-            sb2.append(lower);
-            sb2.append("_tuv;");
-            try (Statement removeLang = conn.createStatement()) {
-                removeLang.execute(sb.toString());
-                removeLang.execute(sb2.toString());
-            }
-            conn.commit();
+            markDirty();
+            tuvCache.clear();
+            clearHashes(lang);
+            try (PreparedStatement removeLang = conn.prepareStatement("DELETE FROM tuv WHERE lang = ?")) {
+                removeLang.setString(1, lang);
+                removeLang.executeUpdate();
+            }
+            commitChanges();
+            codes.remove(lang.toLowerCase().replace("-", "_"));
             languages.remove(lang);
         }
     }
 
     @Override
-    public void removeTags() throws SAXException, IOException, ParserConfigurationException, SQLException {
+    public synchronized void removeTags() throws SAXException, IOException, ParserConfigurationException, SQLException {
+        cleanUnits(true, false);
+    }
+
+    // Tags and surrounding spaces are removed in one pass over the tuvs, which
+    // are decoded and written once. Changed units get their hash in the same
+    // pass, so duplicates can be found without reading the tuvs again.
+    @Override
+    public synchronized void cleanUnits(boolean tags, boolean spaces)
+            throws SAXException, IOException, ParserConfigurationException, SQLException {
         processed = 0l;
-        selectTUS.setLong(1, 0l);
-        try (ResultSet rs = selectTUS.executeQuery()) {
+        processProgress.start(0l, countUnits(statements));
+        long start = System.nanoTime();
+        PreparedStatement hashUnit = statements.get("UPDATE tu SET hash = ? WHERE id = ?");
+        SortedMap<String, byte[]> hashes = new TreeMap<>();
+        long lastId = -1l;
+        boolean changed = false;
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT id, lang, pure, tuv, hash FROM tuv ORDER BY id")) {
             while (rs.next()) {
-                String id = rs.getString(1);
-                Iterator<String> it = languages.iterator();
-                while (it.hasNext()) {
-                    String lang = it.next();
-                    Element tuv = getTuv(id, lang);
-                    if (tuv != null) {
-                        Element seg = tuv.getChild("seg");
-                        if (!seg.getChildren().isEmpty()) {
-                            seg.setText(TmxUtils.textOnly(seg));
-                            if (setChangeId) {
-                                tuv.setAttribute("changeid", System.getProperty("user.name"));
-                                tuv.setAttribute("changedate", TmxUtils.tmxDate());
-                            }
-                            updateTUV(id, lang, tuv);
+                long id = rs.getLong(1);
+                if (id != lastId) {
+                    if (changed) {
+                        hashUnit.setBytes(1, ContentHash.unit(hashes));
+                        hashUnit.setLong(2, lastId);
+                        hashUnit.executeUpdate();
+                    }
+                    if (lastId != -1l) {
+                        processed++;
+                        processProgress.addUnits(1);
+                    }
+                    hashes.clear();
+                    changed = false;
+                    lastId = id;
+                }
+                String lang = rs.getString(2);
+                String pure = rs.getString(3);
+                byte[] hash = rs.getBytes(5);
+                if (tags || !pure.equals(pure.strip())) {
+                    Element tuv = TuvCodec.decode(rs.getBytes(4));
+                    if (TmxUtils.cleanSegment(tuv.getChild("seg"), tags, spaces)) {
+                        if (setChangeId) {
+                            tuv.setAttribute("changeid", System.getProperty("user.name"));
+                            tuv.setAttribute("changedate", TmxUtils.tmxDate());
                         }
+                        hash = updateTUV(id, lang, tuv);
+                        changed = true;
                     }
                 }
-                processed++;
+                hashes.put(lang, hash);
             }
         }
-        conn.commit();
+        if (changed) {
+            hashUnit.setBytes(1, ContentHash.unit(hashes));
+            hashUnit.setLong(2, lastId);
+            hashUnit.executeUpdate();
+        }
+        if (lastId != -1l) {
+            processed++;
+            processProgress.addUnits(1);
+        }
+        processProgress.addTime("clean", System.nanoTime() - start);
+        commitChanges();
+        processProgress.finish();
     }
 
     @Override
-    public void changeLanguage(Language oldLanguage, Language newLanguage)
+    public synchronized void changeLanguage(Language oldLanguage, Language newLanguage)
             throws IOException, SAXException, ParserConfigurationException, SQLException {
         String oldCode = oldLanguage.getCode();
         if (!languages.contains(oldCode)) {
@@ -721,168 +1418,217 @@ public class SqlStore implements StoreInterface {
         if (languages.contains(newCode)) {
             return;
         }
-        String lowerOld = oldCode.toLowerCase().replace("-", "_");
-        String lowerNew = newCode.toLowerCase().replace("-", "_");
-        StringBuilder sb = new StringBuilder();
-        sb.append("ALTER TABLE tuv RENAME COLUMN ");
-        sb.append(lowerOld);
-        sb.append("_pure TO ");
-        sb.append(lowerNew);
-        sb.append("_pure;");
-        StringBuilder sb2 = new StringBuilder();
-        sb2.append("ALTER TABLE tuv RENAME COLUMN ");
-        sb2.append(lowerOld);
-        sb2.append("_tuv TO ");
-        sb2.append(lowerNew);
-        sb2.append("_tuv;");
-        try (Statement changeLang = conn.createStatement()) {
-            changeLang.execute(sb.toString());
-            changeLang.execute(sb2.toString());
+        markDirty();
+        tuvCache.clear();
+        clearHashes(oldCode);
+        try (PreparedStatement changeLang = conn.prepareStatement("UPDATE tuv SET lang = ? WHERE lang = ?")) {
+            changeLang.setString(1, newCode);
+            changeLang.setString(2, oldCode);
+            changeLang.executeUpdate();
         }
-        conn.commit();
+        commitChanges();
+        codes.remove(oldCode.toLowerCase().replace("-", "_"));
         languages.remove(oldCode);
-        languages.add(newCode);
+        registerLanguage(newCode);
     }
 
     @Override
-    public void removeDuplicates() throws SAXException, IOException, ParserConfigurationException, SQLException {
-        String order = " ORDER BY ";
-        Iterator<String> it = languages.iterator();
-        while (it.hasNext()) {
-            String lang = it.next();
-            String lower = lang.toLowerCase().replace("-", "_");
-            order += lower + "_pure, ";
-        }
-        order = order.substring(0, order.length() - 2);
-        String sql = "SELECT * FROM tuv" + order;
-        Map<String, Element> lastSegments = new HashMap<>();
-        try (Statement stmt = conn.createStatement()) {
-            try (ResultSet rs = stmt.executeQuery(sql)) {
-                while (rs.next()) {
-                    String id = rs.getString("id");
-                    Map<String, Element> segments = new HashMap<>();
-                    it = languages.iterator();
-                    while (it.hasNext()) {
-                        String lang = it.next();
-                        String lower = lang.toLowerCase().replace("-", "_");
-                        String value = rs.getString(lower + "_tuv");
-                        if (value != null) {
-                            Element tuv = parseElement(value);
-                            Element seg = tuv.getChild("seg");
-                            segments.put(lang, seg);
-
-                        }
-                    }
-                    if (segments.equals(lastSegments)) {
-                        delete(id);
-                    } else {
-                        lastSegments = segments;
-                    }
-                }
-            }
-        }
-        conn.commit();
+    public void removeDuplicates() throws SQLException {
+        removeDuplicates(false);
     }
 
+    // Units with the same segments in every language share their hash; one unit
+    // of each group is kept, either the first in the file or the one changed
+    // last.
     @Override
-    public void removeSpaces() throws SAXException, IOException, ParserConfigurationException, SQLException {
-        processed = 0l;
-        String sql = "SELECT * FROM tuv";
+    public synchronized long removeDuplicates(boolean keepNewest) throws SQLException {
+        long start = System.nanoTime();
+        hashUnits();
+        processProgress.start(0l, 0l);
+        processProgress.addTime("hash", System.nanoTime() - start);
+        start = System.nanoTime();
+        clearListed();
+        String order = keepNewest ? "changed DESC, position DESC" : "position";
+        long count = 0l;
         try (Statement stmt = conn.createStatement()) {
-            try (ResultSet rs = stmt.executeQuery(sql)) {
-                while (rs.next()) {
-                    String id = rs.getString("id");
-                    Iterator<String> it = languages.iterator();
-                    while (it.hasNext()) {
-                        String lang = it.next();
-                        String lower = lang.toLowerCase().replace("-", "_");
-                        String pure = rs.getString(lower + "_pure");
-                        if (pure != null && !pure.equals(pure.strip())) {
-                            Element tuv = parseElement(rs.getString(lower + "_tuv"));
-                            Element seg = tuv.getChild("seg");
-                            seg.setContent(TmxUtils.stripSegment(seg).getContent());
-                            if (setChangeId) {
-                                tuv.setAttribute("changeid", System.getProperty("user.name"));
-                                tuv.setAttribute("changedate", TmxUtils.tmxDate());
-                            }
-                            updateTUV(id, lang, tuv);
-                        }
+            count = stmt.executeUpdate("INSERT INTO listed (id) SELECT id FROM (SELECT id,"
+                    + " row_number() OVER (PARTITION BY hash ORDER BY " + order + ") AS k FROM tu)"
+                    + " WHERE k > 1 ORDER BY id");
+        }
+        processProgress.start(0l, count);
+        processProgress.addTime("select", System.nanoTime() - start);
+        long result = deleteListed(count);
+        commitChanges();
+        processProgress.finish();
+        return result;
+    }
+
+    // computes the hash of units changed since it was last set, from the hashes
+    // of their segments
+    private void hashUnits() throws SQLException {
+        PreparedStatement update = statements.get("UPDATE tu SET hash = ? WHERE id = ?");
+        SortedMap<String, byte[]> hashes = new TreeMap<>();
+        long lastId = -1l;
+        int pending = 0;
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT tu.id, tuv.lang, tuv.hash FROM tu"
+                        + " LEFT JOIN tuv ON tuv.id = tu.id WHERE tu.hash IS NULL ORDER BY tu.id")) {
+            while (rs.next()) {
+                long id = rs.getLong(1);
+                if (id != lastId && lastId != -1l) {
+                    update.setBytes(1, ContentHash.unit(hashes));
+                    update.setLong(2, lastId);
+                    update.addBatch();
+                    hashes.clear();
+                    if (++pending >= batchSize) {
+                        update.executeBatch();
+                        pending = 0;
                     }
                 }
+                lastId = id;
+                String lang = rs.getString(2);
+                if (lang != null) {
+                    hashes.put(lang, rs.getBytes(3));
+                }
             }
         }
-        conn.commit();
+        if (lastId != -1l) {
+            update.setBytes(1, ContentHash.unit(hashes));
+            update.setLong(2, lastId);
+            update.addBatch();
+        }
+        update.executeBatch();
     }
 
-    private void clearTuv(String id, String lang) throws SQLException {
-        String lower = lang.toLowerCase().replace("-", "_");
-        try (PreparedStatement deleteTUV = conn.prepareStatement("UPDATE tuv SET " + lower + "_pure = '', " + lower
-                + "_tuv = '' WHERE id = ?")) {
-            deleteTUV.setString(1, id);
-            deleteTUV.executeUpdate();
+    // the units with text in a language that is renamed or removed
+    private void clearHashes(String lang) throws SQLException {
+        try (PreparedStatement stmt = conn
+                .prepareStatement("UPDATE tu SET hash = NULL WHERE id IN (SELECT id FROM tuv WHERE lang = ?)")) {
+            stmt.setString(1, lang);
+            stmt.executeUpdate();
         }
     }
 
     @Override
-    public void consolidateUnits(Language language)
+    public synchronized void removeSpaces() throws SAXException, IOException, ParserConfigurationException, SQLException {
+        cleanUnits(false, true);
+    }
+
+    private void clearTuv(long id, String lang) throws SQLException {
+        tuvCache.remove(tuvKey(id, lang));
+        PreparedStatement deleteTUV = statements.get("DELETE FROM tuv WHERE id = ? AND lang = ?");
+        deleteTUV.setLong(1, id);
+        deleteTUV.setString(2, getCode(lang));
+        deleteTUV.executeUpdate();
+        unitChanged(id, "");
+    }
+
+    // Units are grouped by the hash of their source segment and the first one in
+    // the file receives the languages it lacks from the others, taking each from
+    // the first unit that has it. The tuv rows are moved in steps and the units
+    // left without translations are deleted, all in one transaction.
+    @Override
+    public synchronized void consolidateUnits(Language language)
             throws IOException, SAXException, ParserConfigurationException, SQLException {
-        String srcLang = language.getCode();
-        String lower = srcLang.toLowerCase().replace("-", "_");
-        String sql = "SELECT * FROM tuv WHERE " + lower + "_pure NOT NULL ORDER BY " + lower + "_pure";
-        Map<String, Element> lastSegments = new HashMap<>();
-        String lastId = "";
-        boolean first = true;
+        String srcLang = getCode(language.getCode());
+        processed = 0l;
+        processProgress.start(0l, 0l);
+        long start = System.nanoTime();
         try (Statement stmt = conn.createStatement()) {
-            try (ResultSet rs = stmt.executeQuery(sql)) {
+            stmt.execute("CREATE TEMP TABLE IF NOT EXISTS grouped (id INTEGER PRIMARY KEY, keep INTEGER NOT NULL)");
+            stmt.execute("DELETE FROM grouped");
+            stmt.execute("CREATE TEMP TABLE IF NOT EXISTS moved (n INTEGER PRIMARY KEY, row INTEGER NOT NULL UNIQUE,"
+                    + " id INTEGER NOT NULL, keep INTEGER NOT NULL)");
+            stmt.execute("DELETE FROM moved");
+        }
+        PreparedStatement group = statements.get("INSERT INTO grouped (id, keep) SELECT id, keep FROM (SELECT s.id,"
+                + " first_value(s.id) OVER (PARTITION BY s.hash ORDER BY tu.position) AS keep,"
+                + " count(*) OVER (PARTITION BY s.hash) AS size FROM tuv s JOIN tu ON tu.id = s.id WHERE s.lang = ?)"
+                + " WHERE size > 1");
+        group.setString(1, srcLang);
+        group.executeUpdate();
+        PreparedStatement donate = statements.get("INSERT INTO moved (row, id, keep) SELECT row, id, keep FROM"
+                + " (SELECT t.rowid AS row, t.id, g.keep, row_number() OVER (PARTITION BY g.keep, t.lang"
+                + " ORDER BY tu.position) AS k FROM grouped g JOIN tuv t ON t.id = g.id AND t.lang <> ?"
+                + " JOIN tu ON tu.id = g.id WHERE g.id <> g.keep"
+                + " AND NOT EXISTS (SELECT 1 FROM tuv x WHERE x.id = g.keep AND x.lang = t.lang)) WHERE k = 1"
+                + " ORDER BY row");
+        donate.setString(1, srcLang);
+        long count = donate.executeUpdate();
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT count(DISTINCT keep) FROM grouped")) {
+            if (rs.next()) {
+                processProgress.setCount("groups", rs.getLong(1));
+            }
+        }
+        processProgress.setCount("moved", count);
+        processProgress.addTime("group", System.nanoTime() - start);
+        if (count > 0) {
+            moveTuvs();
+        }
+        start = System.nanoTime();
+        count = listUntranslated(srcLang);
+        processProgress.addTime("select", System.nanoTime() - start);
+        long removed = deleteListed(count);
+        processProgress.setCount("removed", removed);
+        commitChanges();
+        processProgress.finish();
+    }
+
+    // gives the tuv rows listed in the moved table to the unit that keeps them
+    private void moveTuvs() throws SQLException {
+        long start = System.nanoTime();
+        tuvCache.clear();
+        if (setChangeId) {
+            String user = System.getProperty("user.name");
+            String date = TmxUtils.tmxDate();
+            PreparedStatement update = statements.get("UPDATE tuv SET tuv = ? WHERE rowid = ?");
+            int pending = 0;
+            try (Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt
+                            .executeQuery("SELECT t.rowid, t.tuv FROM moved m JOIN tuv t ON t.rowid = m.row")) {
                 while (rs.next()) {
-                    String id = rs.getString("id");
-                    Map<String, Element> segments = new HashMap<>();
-                    Iterator<String> it = languages.iterator();
-                    while (it.hasNext()) {
-                        String lang = it.next();
-                        lower = lang.toLowerCase().replace("-", "_");
-                        String value = rs.getString(lower + "_tuv");
-                        if (value != null) {
-                            segments.put(lang, parseElement(value));
-                        }
-                    }
-                    if (first) {
-                        lastSegments = segments;
-                        lastId = id;
-                        first = false;
-                        continue;
-                    }
-                    if (segments.get(srcLang).getChild("seg").equals(lastSegments.get(srcLang).getChild("seg"))) {
-                        it = languages.iterator();
-                        while (it.hasNext()) {
-                            String lang = it.next();
-                            if (lang.equals(srcLang)) {
-                                continue;
-                            }
-                            Element a = lastSegments.get(lang);
-                            Element b = segments.get(lang);
-                            if (a == null && b != null) {
-                                lastSegments.put(lang, b);
-                                if (setChangeId) {
-                                    b.setAttribute("changeid", System.getProperty("user.name"));
-                                    b.setAttribute("changedate", TmxUtils.tmxDate());
-                                }
-                                updateTUV(lastId, lang, b);
-                                clearTuv(id, lang);
-                            }
-                        }
-                    } else {
-                        lastSegments = segments;
-                        lastId = id;
+                    Element tuv = TuvCodec.decode(rs.getBytes(2));
+                    tuv.setAttribute("changeid", user);
+                    tuv.setAttribute("changedate", date);
+                    update.setBytes(1, TuvCodec.encode(tuv));
+                    update.setLong(2, rs.getLong(1));
+                    update.addBatch();
+                    if (++pending >= batchSize) {
+                        update.executeBatch();
+                        pending = 0;
                     }
                 }
             }
+            update.executeBatch();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE tu SET changed = max(changed, ?) WHERE id IN (SELECT keep FROM moved)")) {
+                stmt.setString(1, date);
+                stmt.executeUpdate();
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                    "UPDATE tu SET hash = NULL WHERE id IN (SELECT id FROM moved UNION SELECT keep FROM moved)");
+        }
+        PreparedStatement move = statements.get("UPDATE tuv SET id = (SELECT keep FROM moved WHERE row = tuv.rowid)"
+                + " WHERE rowid IN (SELECT row FROM moved WHERE n > ? AND n <= ?)");
+        long last = 0l;
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT MAX(n) FROM moved")) {
+            if (rs.next()) {
+                last = rs.getLong(1);
+            }
+        }
+        for (long n = 0l; n < last; n += batchSize) {
+            move.setLong(1, n);
+            move.setLong(2, n + batchSize);
+            processProgress.addUnits(move.executeUpdate());
         }
-        removeUntranslated(language);
+        processProgress.addTime("move", System.nanoTime() - start);
     }
 
     @Override
-    public void setTuAttributes(String id, List<String[]> attributes)
+    public synchronized void setTuAttributes(long id, List<String[]> attributes)
             throws SAXException, IOException, ParserConfigurationException, SQLException {
         Element tu = getTu(id);
         if (tu != null) {
@@ -893,20 +1639,21 @@ public class SqlStore implements StoreInterface {
                 tu.setAttribute(pair[0], pair[1]);
             }
             updateTU(id, tu);
-            conn.commit();
+            commitChanges();
         }
     }
 
-    private void updateTU(String id, Element tu) throws SQLException {
-        try (PreparedStatement updateTU = conn.prepareStatement("UPDATE tu SET tu = ? WHERE id = ?")) {
-            updateTU.setString(1, tu.toString());
-            updateTU.setString(2, id);
-            updateTU.executeUpdate();
-        }
+    private void updateTU(long id, Element tu) throws SQLException {
+        tuCache.update(id, tu);
+        PreparedStatement updateTU = statements.get("UPDATE tu SET tu = ? WHERE id = ?");
+        updateTU.setString(1, tu.toString());
+        updateTU.setLong(2, id);
+        updateTU.executeUpdate();
+        unitChanged(id, UnitData.date(tu));
     }
 
     @Override
-    public void setTuvAttributes(String id, String lang, List<String[]> attributes)
+    public synchronized void setTuvAttributes(long id, String lang, List<String[]> attributes)
             throws SAXException, IOException, ParserConfigurationException, SQLException {
         Element tuv = getTuv(id, lang);
         if (tuv != null) {
@@ -917,12 +1664,12 @@ public class SqlStore implements StoreInterface {
                 tuv.setAttribute(pair[0], pair[1]);
             }
             updateTUV(id, lang, tuv);
-            conn.commit();
+            commitChanges();
         }
     }
 
     @Override
-    public void setTuProperties(String id, List<String[]> properties)
+    public synchronized void setTuProperties(long id, List<String[]> properties)
             throws SAXException, IOException, ParserConfigurationException, SQLException {
         Element tu = getTu(id);
         if (tu != null) {
@@ -945,12 +1692,12 @@ public class SqlStore implements StoreInterface {
                 tu.setAttribute("changedate", TmxUtils.tmxDate());
             }
             updateTU(id, tu);
-            conn.commit();
+            commitChanges();
         }
     }
 
     @Override
-    public void setTuvProperties(String id, String lang, List<String[]> properties)
+    public synchronized void setTuvProperties(long id, String lang, List<String[]> properties)
             throws SAXException, IOException, ParserConfigurationException, SQLException {
         Element tuv = getTuv(id, lang);
         if (tuv != null) {
@@ -973,12 +1720,12 @@ public class SqlStore implements StoreInterface {
                 tuv.setAttribute("changedate", TmxUtils.tmxDate());
             }
             updateTUV(id, lang, tuv);
-            conn.commit();
+            commitChanges();
         }
     }
 
     @Override
-    public void setTuNotes(String id, List<String> notes)
+    public synchronized void setTuNotes(long id, List<String> notes)
             throws SAXException, IOException, ParserConfigurationException, SQLException {
         Element tu = getTu(id);
         if (tu != null) {
@@ -1000,12 +1747,12 @@ public class SqlStore implements StoreInterface {
                 tu.setAttribute("changedate", TmxUtils.tmxDate());
             }
             updateTU(id, tu);
-            conn.commit();
+            commitChanges();
         }
     }
 
     @Override
-    public void setTuvNotes(String id, String lang, List<String> notes)
+    public synchronized void setTuvNotes(long id, String lang, List<String> notes)
             throws SAXException, IOException, ParserConfigurationException, SQLException {
         Element tuv = getTuv(id, lang);
         if (tuv != null) {
@@ -1027,15 +1774,20 @@ public class SqlStore implements StoreInterface {
                 tuv.setAttribute("changedate", TmxUtils.tmxDate());
             }
             updateTUV(id, lang, tuv);
-            conn.commit();
+            commitChanges();
         }
     }
 
     @Override
     public void exportDelimited(String file)
             throws IOException, SAXException, ParserConfigurationException, SQLException {
+        read(cache -> exportDelimited(cache, file));
+    }
+
+    private Void exportDelimited(StatementCache cache, String file) throws IOException, SQLException {
         exported = 0l;
-        try (FileOutputStream stream = new FileOutputStream(file)) {
+        exportProgress.start(0l, countUnits(cache));
+        try (OutputStream stream = TmxStreams.count(new FileOutputStream(file), exportProgress)) {
             try (OutputStreamWriter cout = new OutputStreamWriter(stream, StandardCharsets.UTF_16LE)) {
                 byte[] feff = { -1, -2 };
                 stream.write(feff);
@@ -1050,15 +1802,16 @@ public class SqlStore implements StoreInterface {
                 }
                 langs.append('\n');
                 cout.write(langs.toString());
-                selectTUS.setLong(1, 0l);
-                try (ResultSet rs = selectTUS.executeQuery()) {
+                PreparedStatement selectPure = cache.get("SELECT pure FROM tuv WHERE id = ? AND lang = ?");
+                try (Statement stmt = cache.getConnection().createStatement();
+                        ResultSet rs = stmt.executeQuery("SELECT id FROM tu ORDER BY position")) {
                     while (rs.next()) {
                         StringBuilder line = new StringBuilder();
-                        String id = rs.getString(1);
+                        long id = rs.getLong(1);
                         Iterator<String> langIt = languages.iterator();
                         while (langIt.hasNext()) {
                             String lang = langIt.next();
-                            String pure = getPure(id, lang);
+                            String pure = getPure(selectPure, id, lang);
                             String text = " ";
                             if (!pure.isEmpty()) {
                                 text = TmxUtils.cleanLines(pure);
@@ -1071,10 +1824,14 @@ public class SqlStore implements StoreInterface {
                         line.append('\n');
                         cout.write(line.toString());
                         exported++;
+                        exportProgress.addUnits(1);
                     }
                 }
             }
+        } finally {
+            exportProgress.finish();
         }
+        return null;
     }
 
     @Override
@@ -1089,7 +1846,13 @@ public class SqlStore implements StoreInterface {
 
     @Override
     public void exportExcel(String file) throws IOException, SAXException, ParserConfigurationException, SQLException {
+        read(cache -> exportExcel(cache, file));
+    }
+
+    private Void exportExcel(StatementCache cache, String file)
+            throws IOException, SAXException, ParserConfigurationException, SQLException {
         exported = 0l;
+        exportProgress.start(0l, countUnits(cache));
         Map<String, String> langsMap = new HashMap<>();
         Set<String> cols = new TreeSet<>();
         int i = 0;
@@ -1111,15 +1874,16 @@ public class SqlStore implements StoreInterface {
         rows.add(firstRow);
 
         String sql = "SELECT id, position FROM tu ORDER BY position";
-        try (Statement stmt = conn.createStatement()) {
+        PreparedStatement select = cache.get("SELECT tuv FROM tuv WHERE id = ? AND lang = ?");
+        try (Statement stmt = cache.getConnection().createStatement()) {
             try (ResultSet rs = stmt.executeQuery(sql)) {
                 while (rs.next()) {
-                    String id = rs.getString(1);
+                    long id = rs.getLong(1);
                     Map<String, String> rowMap = new HashMap<>();
                     langIt = languages.iterator();
                     while (langIt.hasNext()) {
                         String lang = langIt.next();
-                        Element tuv = getTuv(id, lang);
+                        Element tuv = readTuv(select, id, lang);
                         String text = "";
                         if (tuv != null) {
                             text = TmxUtils.textOnly(tuv.getChild("seg"));
@@ -1128,14 +1892,20 @@ public class SqlStore implements StoreInterface {
                     }
                     rows.add(rowMap);
                     exported++;
+                    exportProgress.addUnits(1);
                 }
             }
         }
+        long start = System.nanoTime();
         Sheet sheet = new Sheet("Sheet1", cols, rows);
         ExcelWriter writer = new ExcelWriter();
         writer.writeFile(file, sheet);
+        exportProgress.addTime("write", System.nanoTime() - start);
+        exportProgress.finish();
+        return null;
     }
 
+    @Override
     public void setFileAttributes(JSONObject attributes) {
         attributes.keySet().forEach(key -> {
             String value = attributes.getString(key);
@@ -1153,6 +1923,7 @@ public class SqlStore implements StoreInterface {
         });
     }
 
+    @Override
     public void setFileNotes(JSONArray notes) {
         List<Element> oldNotes = header.getChildren("note");
         for (Element note : oldNotes) {
@@ -1165,6 +1936,7 @@ public class SqlStore implements StoreInterface {
         }
     }
 
+    @Override
     public void setFileProperties(JSONArray properties) {
         List<Element> oldProps = header.getChildren("prop");
         for (Element prop : oldProps) {
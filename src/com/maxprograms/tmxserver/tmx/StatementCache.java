@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+class StatementCache {
+
+	// Statements prepared once for a connection and reused until it closes. The
+	// language is always a bound parameter, so the SQL text alone is the key and
+	// adding or renaming languages leaves the statements valid. Callers must not
+	// close the statements they get.
+
+	private Connection connection;
+	private Map<String, PreparedStatement> statements;
+
+	StatementCache(Connection connection) {
+		this.connection = connection;
+		statements = new HashMap<>();
+	}
+
+	Connection getConnection() {
+		return connection;
+	}
+
+	PreparedStatement get(String sql) throws SQLException {
+		PreparedStatement stmt = statements.get(sql);
+		if (stmt == null) {
+			stmt = connection.prepareStatement(sql);
+			statements.put(sql, stmt);
+		}
+		return stmt;
+	}
+
+	void close() throws SQLException {
+		Iterator<PreparedStatement> it = statements.values().iterator();
+		while (it.hasNext()) {
+			it.next().close();
+		}
+		statements.clear();
+		connection.close();
+	}
+}
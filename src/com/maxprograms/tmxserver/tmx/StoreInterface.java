@@ -46,7 +46,7 @@ public interface StoreInterface {
 
 	long getDiscarded();
 
-	String saveData(String id, String lang, String value)
+	String saveData(long id, String lang, String value)
 			throws IOException, SAXException, ParserConfigurationException, SQLException;
 
 	void writeFile(File out) throws IOException, SAXException, ParserConfigurationException, SQLException;
@@ -55,16 +55,16 @@ public interface StoreInterface {
 
 	void commit() throws IOException, SQLException;
 
-	Element getTu(String id) throws IOException, SQLException, SAXException, ParserConfigurationException;
+	Element getTu(long id) throws IOException, SQLException, SAXException, ParserConfigurationException;
 
-	void delete(List<String> selected) throws SQLException;
+	void delete(List<Long> selected) throws SQLException;
 
 	void replaceText(String search, String replace, Language language, boolean regExp)
 			throws SAXException, IOException, ParserConfigurationException, SQLException;
 
 	long getProcessed();
 
-	void insertUnit(String id) throws IOException, SQLException;
+	long insertUnit(String tuid) throws IOException, SQLException;
 
 	long removeUntranslated(Language lang) throws IOException, SQLException, SAXException, ParserConfigurationException;
 
@@ -85,29 +85,29 @@ public interface StoreInterface {
 
 	void consolidateUnits(Language lang) throws IOException, SAXException, ParserConfigurationException, SQLException;
 
-	void setTuAttributes(String id, List<String[]> attributes)
+	void setTuAttributes(long id, List<String[]> attributes)
 			throws SAXException, IOException, ParserConfigurationException, SQLException;
 
-	void setTuvAttributes(String id, String lang, List<String[]> attributes)
+	void setTuvAttributes(long id, String lang, List<String[]> attributes)
 			throws SAXException, IOException, ParserConfigurationException, SQLException;
 
-	void setTuProperties(String id, List<String[]> properties)
+	void setTuProperties(long id, List<String[]> properties)
 			throws SAXException, IOException, ParserConfigurationException, SQLException;
 
-	void setTuvProperties(String id, String lang, List<String[]> dataList)
+	void setTuvProperties(long id, String lang, List<String[]> dataList)
 			throws SAXException, IOException, ParserConfigurationException, SQLException;
 
-	void setTuNotes(String id, List<String> notes)
+	void setTuNotes(long id, List<String> notes)
 			throws SAXException, IOException, ParserConfigurationException, SQLException;
 
-	void setTuvNotes(String id, String lang, List<String> notes)
+	void setTuvNotes(long id, String lang, List<String> notes)
 			throws SAXException, IOException, ParserConfigurationException, SQLException;
 
 	void exportDelimited(String file) throws IOException, SAXException, ParserConfigurationException, SQLException;
 
 	long getExported();
 
-	Element getTuv(String id, String lang) throws SAXException, IOException, ParserConfigurationException, SQLException;
+	Element getTuv(long id, String lang) throws SAXException, IOException, ParserConfigurationException, SQLException;
 
 	void setIndentation(int indentation);
 
@@ -30,11 +30,14 @@ class TMXContentHandler implements IContentHandler {
 	Deque<Element> stack;
 	private boolean inCDATA = false;
 	private StoreInterface db;
+	private LoadPipeline pipeline;
+	private long base;
 	private int count;
 
 	public TMXContentHandler(StoreInterface db) {
 		this.db = db;
 		count = 0;
+		base = -1l;
 		stack = new ArrayDeque<>();
 	}
 
@@ -53,6 +56,20 @@ class TMXContentHandler implements IContentHandler {
 	@Override
 	public void endElement(String uri, String localName, String qName) throws SAXException {
 		if (localName.equals("tu")) {
+			if (db instanceof EditorStore store && store.getLoadProgress().isCancelled()) {
+				// the file was closed while loading
+				throw new SAXException(Messages.getString("TMXContentHandler.0"));
+			}
+			if (pipeline != null) {
+				if (base == -1l) {
+					pipeline.submit(current);
+				} else {
+					pipeline.store(current, base + count++);
+				}
+				current = null;
+				stack.clear();
+				return;
+			}
 			try {
 				db.storeTU(current);
 				count++;
@@ -65,7 +82,8 @@ class TMXContentHandler implements IContentHandler {
 			current = null;
 			stack.clear();
 		} else {
-			if (localName.equals("header")) {
+			// chunks repeat the prolog, whose header was stored before they were parsed
+			if (localName.equals("header") && base == -1l) {
 				db.storeHeader(current);
 			}
 			if (!stack.isEmpty()) {
@@ -74,6 +92,16 @@ class TMXContentHandler implements IContentHandler {
 		}
 	}
 
+	public void setPipeline(LoadPipeline pipeline) {
+		this.pipeline = pipeline;
+	}
+
+	// units from this handler are stored at base, base + 1, base + 2...
+	public void setPipeline(LoadPipeline pipeline, long base) {
+		this.pipeline = pipeline;
+		this.base = base;
+	}
+
 	@Override
 	public void endPrefixMapping(String prefix) throws SAXException {
 		// do nothing
@@ -28,6 +28,8 @@ public class TMXReader {
 	private TMXContentHandler handler;
 	private StoreInterface store;
 	private SAXBuilder builder;
+	private int threads;
+	private Progress progress;
 
 	public TMXReader(StoreInterface store) {
 		this.store = store;
@@ -39,10 +41,39 @@ public class TMXReader {
 		builder.setErrorHandler(new CustomErrorHandler());
 	}
 
+	public TMXReader(EditorStore store, int threads) {
+		this(store);
+		this.threads = threads;
+		progress = store.getLoadProgress();
+	}
+
 	public void parse(File file) throws SAXException, IOException, ParserConfigurationException, SQLException {
 		TmxUtils.resetTags();
-		builder.build(file);
+		if (threads > 0) {
+			LoadPipeline pipeline = new LoadPipeline((EditorStore) store, threads);
+			handler.setPipeline(pipeline);
+			try {
+				build(file);
+				pipeline.finish();
+			} catch (SAXException | IOException | ParserConfigurationException | RuntimeException e) {
+				pipeline.abort();
+				throw e;
+			} finally {
+				handler.setPipeline(null);
+			}
+		} else {
+			build(file);
+		}
 		store.commit();
 	}
 
+	private void build(File file) throws SAXException, IOException, ParserConfigurationException {
+		if (progress != null || TmxStreams.isCompressed(file)) {
+			// reads through a stream that reports the bytes read
+			TmxStreams.parse(file, handler, progress);
+		} else {
+			builder.build(file);
+		}
+	}
+
 }
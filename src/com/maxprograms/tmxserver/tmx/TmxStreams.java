@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import com.maxprograms.xml.CustomErrorHandler;
+import com.maxprograms.xml.IContentHandler;
+
+public class TmxStreams {
+
+	private static final int BUFFER = 65536;
+
+	private TmxStreams() {
+		// do not instantiate this class
+	}
+
+	public static boolean isGzip(File file) throws IOException {
+		byte[] magic = readMagic(file);
+		return magic.length >= 2 && magic[0] == (byte) 0x1F && magic[1] == (byte) 0x8B;
+	}
+
+	public static boolean isZip(File file) throws IOException {
+		byte[] magic = readMagic(file);
+		return magic.length >= 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4;
+	}
+
+	public static boolean isCompressed(File file) throws IOException {
+		return isGzip(file) || isZip(file);
+	}
+
+	private static byte[] readMagic(File file) throws IOException {
+		try (FileInputStream in = new FileInputStream(file)) {
+			return in.readNBytes(4);
+		}
+	}
+
+	// gzip files and zip archives are decompressed on the fly; from a zip archive
+	// the first .tmx entry is read, or the first file if none has that extension
+	public static InputStream open(File file) throws IOException {
+		return open(file, null);
+	}
+
+	// progress receives the number of bytes read from the file, before
+	// decompression
+	public static InputStream open(File file, Progress progress) throws IOException {
+		if (isGzip(file)) {
+			return new BufferedInputStream(new GZIPInputStream(count(new FileInputStream(file), progress), BUFFER),
+					BUFFER);
+		}
+		if (isZip(file)) {
+			ZipInputStream zip = new ZipInputStream(
+					new BufferedInputStream(count(new FileInputStream(file), progress), BUFFER));
+			try {
+				String entry = findEntry(file);
+				ZipEntry next = null;
+				while ((next = zip.getNextEntry()) != null) {
+					if (next.getName().equals(entry)) {
+						return zip;
+					}
+				}
+			} catch (IOException e) {
+				zip.close();
+				throw e;
+			}
+			zip.close();
+			MessageFormat mf = new MessageFormat(Messages.getString("TmxStreams.1"));
+			throw new IOException(mf.format(new String[] { file.getAbsolutePath() }));
+		}
+		return new BufferedInputStream(count(new FileInputStream(file), progress), BUFFER);
+	}
+
+	private static String findEntry(File file) throws IOException {
+		String first = null;
+		try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER))) {
+			ZipEntry entry = null;
+			while ((entry = zip.getNextEntry()) != null) {
+				if (entry.isDirectory()) {
+					continue;
+				}
+				if (entry.getName().toLowerCase().endsWith(".tmx")) {
+					return entry.getName();
+				}
+				if (first == null) {
+					first = entry.getName();
+				}
+			}
+		}
+		if (first == null) {
+			MessageFormat mf = new MessageFormat(Messages.getString("TmxStreams.1"));
+			throw new IOException(mf.format(new String[] { file.getAbsolutePath() }));
+		}
+		return first;
+	}
+
+	// files with .gz extension are written compressed and files with .zip
+	// extension as an archive with a single .tmx entry
+	public static OutputStream create(File file) throws IOException {
+		return create(file, null);
+	}
+
+	// progress receives the number of bytes written to the file, after
+	// compression
+	public static OutputStream create(File file, Progress progress) throws IOException {
+		String name = file.getName().toLowerCase();
+		String entry = name.endsWith(".zip") ? entryName(file) : null;
+		OutputStream out = count(new FileOutputStream(file), progress);
+		if (name.endsWith(".gz")) {
+			return new BufferedOutputStream(new GZIPOutputStream(out, BUFFER), BUFFER);
+		}
+		if (entry != null) {
+			ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER));
+			zip.putNextEntry(new ZipEntry(entry));
+			return new BufferedOutputStream(zip, BUFFER);
+		}
+		return new BufferedOutputStream(out, BUFFER);
+	}
+
+	// saving over an archive keeps the name of the entry that was opened; other
+	// entries are not kept
+	private static String entryName(File file) throws IOException {
+		if (file.exists() && isZip(file)) {
+			return findEntry(file);
+		}
+		return new File(baseName(file)).getName() + ".tmx";
+	}
+
+	public static InputStream count(InputStream in, Progress progress) {
+		if (progress == null) {
+			return in;
+		}
+		return new FilterInputStream(in) {
+
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				if (b != -1) {
+					progress.addBytes(1);
+				}
+				return b;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int count = super.read(b, off, len);
+				if (count > 0) {
+					progress.addBytes(count);
+				}
+				return count;
+			}
+
+			@Override
+			public long skip(long n) throws IOException {
+				long count = super.skip(n);
+				progress.addBytes(count);
+				return count;
+			}
+		};
+	}
+
+	public static OutputStream count(OutputStream out, Progress progress) {
+		if (progress == null) {
+			return out;
+		}
+		return new FilterOutputStream(out) {
+
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				progress.addBytes(1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+				progress.addBytes(len);
+			}
+		};
+	}
+
+	// same parser setup as SAXBuilder, reading from a decompressing stream
+	public static void parse(File file, IContentHandler handler, Progress progress)
+			throws SAXException, IOException, ParserConfigurationException {
+		try (InputStream in = open(file, progress)) {
+			InputSource source = new InputSource(in);
+			source.setSystemId(file.toURI().toString());
+			parse(source, handler);
+		}
+	}
+
+	// SAXBuilder can't parse a stream with a handler that builds no document
+	public static void parse(InputSource source, IContentHandler handler)
+			throws SAXException, IOException, ParserConfigurationException {
+		XMLReader parser = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+		parser.setFeature("http://xml.org/sax/features/namespaces", true);
+		parser.setFeature("http://xml.org/sax/features/namespace-prefixes", true);
+		parser.setProperty("http://www.oracle.com/xml/jaxp/properties/totalEntitySizeLimit", 0);
+		parser.setContentHandler(handler);
+		parser.setProperty("http://xml.org/sax/properties/lexical-handler", handler);
+		parser.setEntityResolver(new TMXResolver());
+		parser.setErrorHandler(new CustomErrorHandler());
+		parser.parse(source);
+	}
+
+	// for tools that can only read plain files
+	public static File expand(File file, File folder) throws IOException {
+		File result = File.createTempFile("expanded", ".tmx", folder);
+		try (InputStream in = open(file)) {
+			Files.copy(in, result.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return result;
+	}
+
+	// file name without .tmx, .tmx.gz or .zip extension
+	public static String baseName(File file) {
+		String name = file.getAbsolutePath();
+		String lower = name.toLowerCase();
+		if (lower.endsWith(".gz") || lower.endsWith(".zip")) {
+			name = name.substring(0, name.lastIndexOf('.'));
+			lower = name.toLowerCase();
+		}
+		if (lower.endsWith(".tmx")) {
+			name = name.substring(0, name.length() - 4);
+		}
+		return name;
+	}
+}
@@ -27,8 +27,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeoutException;
 import java.util.Locale;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -54,8 +53,6 @@ public class TmxUtils {
 	private static HashMap<String, String> tags;
 
 	private static SAXBuilder builder;
-	private static Pattern pattern;
-	private static String lastFilterText;
 
 	private static File workDir;
 	private static Map<String, Locale> localesCache = new HashMap<>();
@@ -119,28 +116,11 @@ public class TmxUtils {
 					text.append(TextUtils.cleanString(((TextNode) o).getText()));
 				} else {
 					if (regExp) {
-						if (pattern == null || !filterText.equals(lastFilterText)) {
-							pattern = Pattern.compile(filterText);
-							lastFilterText = filterText;
-						}
 						String s = ((TextNode) o).getText();
-						Matcher matcher = pattern.matcher(s);
-						if (matcher.find()) {
-							StringBuilder sb = new StringBuilder();
-							do {
-								int start = matcher.start();
-								int end = matcher.end();
-								sb.append(TextUtils.cleanString(s.substring(0, start)));
-								sb.append("<span " + STYLE + ">");
-								sb.append(TextUtils.cleanString(s.substring(start, end)));
-								sb.append("</span>");
-								s = s.substring(end);
-								matcher = pattern.matcher(s);
-							} while (matcher.find());
-							sb.append(TextUtils.cleanString(s));
-							text.append(sb.toString());
-						} else {
-							text.append(TextUtils.cleanString(s));
+						try {
+							text.append(highlightMatches(s, PatternCache.findAll(filterText, s), true));
+						} catch (TimeoutException e) {
+							throw new IOException(e.getMessage());
 						}
 					} else {
 						String s = TextUtils.cleanString(((TextNode) o).getText());
@@ -459,6 +439,25 @@ public class TmxUtils {
 		element.setContent(newContent);
 	}
 
+	// removes the tags of a segment and the spaces around its text; returns true
+	// if the segment changed
+	public static boolean cleanSegment(Element seg, boolean tags, boolean spaces)
+			throws SAXException, IOException, ParserConfigurationException {
+		boolean changed = false;
+		if (tags && !seg.getChildren().isEmpty()) {
+			seg.setText(textOnly(seg));
+			changed = true;
+		}
+		if (spaces) {
+			String pure = textOnly(seg);
+			if (!pure.equals(pure.strip())) {
+				seg.setContent(stripSegment(seg).getContent());
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
 	public static Element stripSegment(Element seg) throws SAXException, IOException, ParserConfigurationException {
 		String text = textContent(seg);
 		char[] array = text.toCharArray();
@@ -508,29 +507,29 @@ public class TmxUtils {
 		return result.replace('\t', ' ');
 	}
 
-	public static String highlightExpression(String string, String expression) {
-		String result = string;
-		if (pattern == null || !expression.equals(lastFilterText)) {
-			pattern = Pattern.compile(expression);
-			lastFilterText = expression;
-		}
-		Matcher matcher = pattern.matcher(result);
-		if (matcher.find()) {
-			StringBuilder sb = new StringBuilder();
-			do {
-				int start = matcher.start();
-				int end = matcher.end();
-				sb.append(result.substring(0, start));
-				sb.append("<span " + STYLE + ">");
-				sb.append(result.substring(start, end));
-				sb.append("</span>");
-				result = result.substring(end);
-				matcher = pattern.matcher(result);
-			} while (matcher.find());
-			sb.append(result);
-			return sb.toString();
+	public static String highlightExpression(String string, String expression) throws IOException {
+		try {
+			return highlightMatches(string, PatternCache.findAll(expression, string), false);
+		} catch (TimeoutException e) {
+			throw new IOException(e.getMessage());
 		}
-		return result;
+	}
+
+	private static String highlightMatches(String string, List<int[]> matches, boolean clean) {
+		StringBuilder sb = new StringBuilder();
+		int last = 0;
+		for (int[] match : matches) {
+			String before = string.substring(last, match[0]);
+			String found = string.substring(match[0], match[1]);
+			sb.append(clean ? TextUtils.cleanString(before) : before);
+			sb.append("<span " + STYLE + ">");
+			sb.append(clean ? TextUtils.cleanString(found) : found);
+			sb.append("</span>");
+			last = match[1];
+		}
+		String rest = string.substring(last);
+		sb.append(clean ? TextUtils.cleanString(rest) : rest);
+		return sb.toString();
 	}
 
 }
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.maxprograms.xml.Attribute;
+import com.maxprograms.xml.CData;
+import com.maxprograms.xml.Comment;
+import com.maxprograms.xml.Element;
+import com.maxprograms.xml.PI;
+import com.maxprograms.xml.TextNode;
+import com.maxprograms.xml.XMLNode;
+
+class TuvCodec {
+
+	// Binary form of a <tuv> tree, decoded without an XML parser.
+	// Each node starts with a tag byte. Element and attribute names are written as
+	// an index in NAMES, or 0 followed by the name when it is not listed. Strings
+	// and counts use variable length integers; strings are UTF-8.
+
+	private static final byte FORMAT = 1;
+
+	private static final byte ELEMENT = 1;
+	private static final byte TEXT = 2;
+	private static final byte CDATA = 3;
+	private static final byte COMMENT = 4;
+	private static final byte PI = 5;
+
+	private static final String[] NAMES = { null, "tuv", "seg", "prop", "note", "bpt", "ept", "ph", "it", "hi", "sub",
+			"ut", "xml:lang", "lang", "type", "i", "x", "pos", "assoc", "o-encoding", "datatype", "usagecount",
+			"lastusagedate", "creationtool", "creationtoolversion", "creationdate", "creationid", "changedate",
+			"changeid", "o-tmf", "xml:space", "xmlns" };
+
+	private static final Map<String, Integer> INDEX = new HashMap<>();
+
+	static {
+		for (int i = 1; i < NAMES.length; i++) {
+			INDEX.put(NAMES[i], i);
+		}
+	}
+
+	private byte[] buffer;
+	private int length;
+
+	private TuvCodec() {
+		buffer = new byte[256];
+	}
+
+	public static byte[] encode(Element tuv) {
+		TuvCodec codec = new TuvCodec();
+		codec.writeByte(FORMAT);
+		codec.writeElement(tuv);
+		return Arrays.copyOf(codec.buffer, codec.length);
+	}
+
+	public static Element decode(byte[] bytes) {
+		if (bytes[0] != FORMAT) {
+			throw new IllegalArgumentException("Unknown tuv format");
+		}
+		return new Reader(bytes, 1).readElement();
+	}
+
+	private void writeElement(Element e) {
+		writeName(e.getName());
+		List<Attribute> atts = e.getAttributes();
+		writeInt(atts.size());
+		Iterator<Attribute> it = atts.iterator();
+		while (it.hasNext()) {
+			Attribute a = it.next();
+			writeName(a.getName());
+			writeString(a.getValue());
+		}
+		List<XMLNode> content = e.getContent();
+		writeInt(content.size());
+		Iterator<XMLNode> nodes = content.iterator();
+		while (nodes.hasNext()) {
+			XMLNode node = nodes.next();
+			switch (node.getNodeType()) {
+				case XMLNode.ELEMENT_NODE:
+					writeByte(ELEMENT);
+					writeElement((Element) node);
+					break;
+				case XMLNode.TEXT_NODE:
+					writeByte(TEXT);
+					writeString(((TextNode) node).getText());
+					break;
+				case XMLNode.CDATA_SECTION_NODE:
+					writeByte(CDATA);
+					writeString(((CData) node).getData());
+					break;
+				case XMLNode.COMMENT_NODE:
+					writeByte(COMMENT);
+					writeString(((Comment) node).getText());
+					break;
+				case XMLNode.PROCESSING_INSTRUCTION_NODE:
+					writeByte(PI);
+					writeString(((PI) node).getTarget());
+					writeString(((PI) node).getData());
+					break;
+				default:
+					// ignore
+			}
+		}
+	}
+
+	private void writeName(String name) {
+		Integer index = INDEX.get(name);
+		if (index != null) {
+			writeInt(index);
+		} else {
+			writeInt(0);
+			writeString(name);
+		}
+	}
+
+	private void writeString(String s) {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeInt(bytes.length);
+		ensure(bytes.length);
+		System.arraycopy(bytes, 0, buffer, length, bytes.length);
+		length += bytes.length;
+	}
+
+	private void writeInt(int value) {
+		ensure(5);
+		while ((value & ~0x7F) != 0) {
+			buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[length++] = (byte) value;
+	}
+
+	private void writeByte(byte b) {
+		ensure(1);
+		buffer[length++] = b;
+	}
+
+	private void ensure(int count) {
+		if (length + count > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+		}
+	}
+
+	private static class Reader {
+
+		private byte[] bytes;
+		private int pos;
+
+		Reader(byte[] bytes, int pos) {
+			this.bytes = bytes;
+			this.pos = pos;
+		}
+
+		Element readElement() {
+			Element e = new Element(readName());
+			int atts = readInt();
+			for (int i = 0; i < atts; i++) {
+				e.setAttribute(readName(), readString());
+			}
+			int count = readInt();
+			for (int i = 0; i < count; i++) {
+				byte tag = bytes[pos++];
+				switch (tag) {
+					case ELEMENT:
+						e.addContent(readElement());
+						break;
+					case TEXT:
+						e.addContent(new TextNode(readString()));
+						break;
+					case CDATA:
+						e.addContent(new CData(readString()));
+						break;
+					case COMMENT:
+						e.addContent(new Comment(readString()) {
+						});
+						break;
+					case PI:
+						e.addContent(new PI(readString(), readString()));
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown node type " + tag);
+				}
+			}
+			return e;
+		}
+
+		String readName() {
+			int index = readInt();
+			return index == 0 ? readString() : NAMES[index];
+		}
+
+		String readString() {
+			int size = readInt();
+			String s = new String(bytes, pos, size, StandardCharsets.UTF_8);
+			pos += size;
+			return s;
+		}
+
+		int readInt() {
+			int result = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = bytes[pos++];
+				result |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2018-2026 Maxprograms.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/epl-v10.html
+ *
+ * Contributors:
+ *     Maxprograms - initial API and implementation
+ *******************************************************************************/
+
+package com.maxprograms.tmxserver.tmx;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.maxprograms.xml.Element;
+
+public class UnitData {
+
+	private String tu;
+	private List<String[]> tuvs;
+	private List<byte[]> encoded;
+	private List<byte[]> hashes;
+	private String changed;
+	private long position;
+	private Element element;
+
+	public UnitData(String tu, List<String[]> tuvs, List<byte[]> encoded) {
+		this.tu = tu;
+		this.tuvs = tuvs;
+		this.encoded = encoded;
+		position = -1l;
+		changed = "";
+	}
+
+	// takes the tuvs out of the unit; tuvs without language are ignored
+	public static UnitData prepare(Element tu) {
+		List<String[]> tuvs = new ArrayList<>();
+		List<byte[]> encoded = new ArrayList<>();
+		List<byte[]> hashes = new ArrayList<>();
+		String changed = date(tu);
+		List<Element> list = tu.getChildren("tuv");
+		Iterator<Element> it = list.iterator();
+		while (it.hasNext()) {
+			Element tuv = it.next();
+			String lang = tuv.getAttributeValue("xml:lang", "");
+			if (lang.isEmpty()) {
+				lang = tuv.getAttributeValue("lang", "");
+				if (!lang.isEmpty()) {
+					tuv.setAttribute("xml:lang", lang);
+					tuv.removeAttribute("lang");
+				}
+			}
+			if (lang.isEmpty()) {
+				// ignore this one
+				continue;
+			}
+			tuvs.add(new String[] { lang, TmxUtils.textOnly(tuv.getChild("seg")) });
+			encoded.add(TuvCodec.encode(tuv));
+			hashes.add(ContentHash.segment(tuv.getChild("seg")));
+			String date = date(tuv);
+			if (date.compareTo(changed) > 0) {
+				changed = date;
+			}
+		}
+		tu.removeChild("tuv");
+		UnitData data = new UnitData(tu.toString(), tuvs, encoded);
+		data.element = tu;
+		data.hashes = hashes;
+		data.changed = changed;
+		return data;
+	}
+
+	// TMX dates sort as text; elements without dates get an empty one
+	static String date(Element e) {
+		String date = e.getAttributeValue("changedate");
+		return date.isEmpty() ? e.getAttributeValue("creationdate") : date;
+	}
+
+	public String getTu() {
+		return tu;
+	}
+
+	// the <tu> without its tuvs
+	public Element getElement() {
+		return element;
+	}
+
+	// each entry holds language and pure text
+	public List<String[]> getTuvs() {
+		return tuvs;
+	}
+
+	// binary tuv for each entry in getTuvs()
+	public List<byte[]> getEncoded() {
+		return encoded;
+	}
+
+	// segment hash for each entry in getTuvs()
+	public List<byte[]> getHashes() {
+		return hashes;
+	}
+
+	// latest change or creation date of the unit and its tuvs
+	public String getChanged() {
+		return changed;
+	}
+
+	// -1 lets the store assign the next position
+	public long getPosition() {
+		return position;
+	}
+
+	public void setPosition(long position) {
+		this.position = position;
+	}
+}
@@ -1301,7 +1301,7 @@ class App {
             title: 'Open TMX File',
             properties: ['openFile'],
             filters: [
-                { name: 'TMX File', extensions: ['tmx'] },
+                { name: 'TMX File', extensions: ['tmx', 'gz', 'zip'] },
                 { name: 'Any File', extensions: ['*'] }
             ]
         }).then((value: OpenDialogReturnValue) => {
@@ -1321,14 +1321,21 @@ class App {
         App.sendRequest({ command: 'openFile', file: file },
             (data: any) => {
                 App.currentStatus = data;
+                let shown: boolean = false;
                 let intervalObject = setInterval(() => {
                     let lastCount: number = 0;
                     if (App.currentStatus.status === COMPLETED) {
                         clearInterval(intervalObject);
                         App.getFileLanguages();
-                        App.filterOptions = {};
-                        App.sortOptions = {};
-                        App.mainWindow.webContents.send('file-loaded', App.currentStatus);
+                        if (shown) {
+                            // first pages are already visible, refresh totals and current page
+                            App.mainWindow.webContents.send('status-changed', { status: SUCCESS, count: App.currentStatus.count });
+                            App.loadSegments();
+                        } else {
+                            App.filterOptions = {};
+                            App.sortOptions = {};
+                            App.mainWindow.webContents.send('file-loaded', App.currentStatus);
+                        }
                         App.currentFile = file;
                         App.mainWindow.setTitle(App.currentFile);
                         App.saved = true;
@@ -1338,6 +1345,19 @@ class App {
                     } else if (App.currentStatus.status === LOADING) {
                         // it's OK, keep waiting
                         App.mainWindow.webContents.send('status-changed', App.currentStatus);
+                        if (!shown && App.currentStatus.Loaded > 0) {
+                            // show the first pages while the rest of the file loads
+                            shown = true;
+                            App.getFileLanguages();
+                            App.filterOptions = {};
+                            App.sortOptions = {};
+                            App.mainWindow.webContents.send('file-loaded', { count: App.currentStatus.Loaded });
+                            App.currentFile = file;
+                            App.mainWindow.setTitle(App.currentFile);
+                            App.mainWindow.webContents.send('end-waiting');
+                        } else if (shown) {
+                            App.mainWindow.webContents.send('status-changed', { status: SUCCESS, count: App.currentStatus.Loaded });
+                        }
                         if (App.currentStatus.Loaded !== lastCount) {
                             App.mainWindow.webContents.send('set-status', App.i18n.format(App.i18n.getString('App', 'LoadedUnits'), ['' + App.currentStatus.Loaded]));
                             lastCount = App.currentStatus.Loaded;
@@ -2058,7 +2078,7 @@ class App {
             title: App.i18n.getString('App', 'SaveTMX'),
             properties: ['showOverwriteConfirmation', 'createDirectory'],
             filters: [
-                { name: App.i18n.getString('App', 'TMXFile'), extensions: ['tmx'] },
+                { name: App.i18n.getString('App', 'TMXFile'), extensions: ['tmx', 'gz'] },
                 { name: App.i18n.getString('App', 'AnyFile'), extensions: ['*'] }
             ]
         }).then((value: SaveDialogReturnValue) => {
@@ -2747,7 +2767,7 @@ class App {
             title: App.i18n.getString('App', 'ValidateTMX'),
             properties: ['openFile'],
             filters: [
-                { name: App.i18n.getString('App', 'TMXFile'), extensions: ['tmx'] }
+                { name: App.i18n.getString('App', 'TMXFile'), extensions: ['tmx', 'gz', 'zip'] }
             ]
         }).then((value: OpenDialogReturnValue) => {
             if (!value.canceled) {
@@ -2957,7 +2977,7 @@ class App {
             title: 'TMX File',
             properties: ['openFile'],
             filters: [
-                { name: 'TMX File', extensions: ['tmx'] },
+                { name: 'TMX File', extensions: ['tmx', 'gz', 'zip'] },
                 { name: 'Any File', extensions: ['*'] }
             ]
         }).then((value: OpenDialogReturnValue) => {
@@ -3075,7 +3095,7 @@ class App {
             title: App.i18n.getString('App', 'TMXFiles'),
             properties: ['openFile', 'multiSelections'],
             filters: [
-                { name: App.i18n.getString('App', 'TMXFile'), extensions: ['tmx'] },
+                { name: App.i18n.getString('App', 'TMXFile'), extensions: ['tmx', 'gz', 'zip'] },
                 { name: App.i18n.getString('App', 'AnyFile'), extensions: ['*'] }
             ]
         }).then((value: OpenDialogReturnValue) => {
@@ -3347,19 +3367,45 @@ class App {
             App.showMessage({ type: 'warning', message: App.i18n.getString('App', 'selectUnits') });
             return;
         }
+        App.mainWindow.webContents.send('start-waiting');
         App.sendRequest({ command: 'deleteUnits', selected },
             (data: any) => {
-                if (data.status === SUCCESS) {
-                    App.getFileLanguages();
-                    App.getCount();
-                    App.loadSegments();
-                    App.saved = false;
-                    App.mainWindow.setDocumentEdited(true);
-                } else {
-                    App.showMessage({ type: 'error', message: data.reason });
-                }
+                App.currentStatus = data;
+                App.mainWindow.webContents.send('set-status', App.i18n.getString('App', 'RemovingUnits'));
+                let intervalObject = setInterval(() => {
+                    if (App.currentStatus.status === COMPLETED) {
+                        App.mainWindow.webContents.send('end-waiting');
+                        App.mainWindow.webContents.send('set-status', '');
+                        clearInterval(intervalObject);
+                        App.getFileLanguages();
+                        App.getCount();
+                        App.loadSegments();
+                        App.saved = false;
+                        App.mainWindow.setDocumentEdited(true);
+                        return;
+                    } else if (App.currentStatus.status === PROCESSING) {
+                        // it's OK, keep waiting
+                    } else if (App.currentStatus.status === ERROR) {
+                        App.mainWindow.webContents.send('end-waiting');
+                        App.mainWindow.webContents.send('set-status', '');
+                        clearInterval(intervalObject);
+                        App.showMessage({ type: 'error', message: App.currentStatus.reason });
+                        return;
+                    } else if (App.currentStatus.status === SUCCESS) {
+                        // ignore status from 'deleteUnits'
+                    } else {
+                        App.mainWindow.webContents.send('end-waiting');
+                        App.mainWindow.webContents.send('set-status', '');
+                        clearInterval(intervalObject);
+                        dialog.showErrorBox(App.i18n.getString('App', 'Error'),
+                            App.i18n.getString('App', 'ErrorRemovingUnits'));
+                        return;
+                    }
+                    App.getProcessingProgress();
+                }, 500);
             },
             (reason: string) => {
+                App.mainWindow.webContents.send('end-waiting');
                 App.showMessage({ type: 'error', message: reason });
             }
         );
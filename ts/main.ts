@@ -1093,6 +1093,9 @@ export class Main {
 
     updateSegments(arg: any): void {
         this.setStatus('Preparing...');
+        if (arg.loading) {
+            this.statusChanged({ status: 'Success', count: arg.count });
+        }
         let rows: string = '';
         let length: number = arg.units.length;
         for (let i = 0; i < length; i++) {